@@ -0,0 +1,169 @@
+package com.example.bastion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AsyncLogWriter
+ * - Bounded multi-producer / single-consumer ring of log lines; append() never blocks or locks.
+ * - One daemon flusher drains the ring, writes through a buffered file stream and flushes once per drain.
+ * - Size-based rotation: file -> file.1 -> ... -> file.N once maxBytes is reached. Lines are encoded
+ *   to UTF-8 once and written as bytes, so the count is the file's actual size.
+ * - When the ring is full the line is dropped and counted instead of stalling the caller.
+ */
+public class AsyncLogWriter {
+
+    private static final long IDLE_PARK_NANOS = 100_000_000L; // 100 ms
+
+    private final String name;
+    private final File file;
+    private final boolean console;
+    private final long maxBytes;
+    private final int backups;
+
+    private final AtomicReferenceArray<String> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();  // next slot to claim (producers)
+    private volatile long head;                        // next slot to read (flusher only writes)
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private volatile Thread flusher;
+    private volatile boolean parked;
+    private OutputStream out;
+    private long fileBytes;
+
+    /**
+     * @param file     target file, or null for console only
+     * @param console  also echo every line to System.out
+     * @param capacity ring size in lines (rounded up to a power of two)
+     */
+    public AsyncLogWriter(String name, File file, boolean console, int capacity, long maxBytes, int backups) {
+        this.name = name;
+        this.file = file;
+        this.console = console;
+        this.maxBytes = maxBytes;
+        this.backups = Math.max(0, backups);
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // === Producers (any thread) ===
+
+    /** Queue one line. Returns false if the ring was full and the line was dropped. */
+    public boolean append(String line) {
+        ensureFlusher();
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= ring.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.lazySet((int) (t & mask), line);
+
+        if (parked) LockSupport.unpark(flusher);
+        return true;
+    }
+
+    private void ensureFlusher() {
+        if (flusher != null) return;
+        synchronized (this) {
+            if (flusher != null) return;
+            Thread t = new Thread(this::runFlusher, "Bastion-Log-" + name);
+            t.setDaemon(true);
+            flusher = t;
+            t.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::drainNow, "Bastion-Log-" + name + "-Flush"));
+        }
+    }
+
+    // === Flusher ===
+
+    private void runFlusher() {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!drain()) {
+                parked = true;
+                if (head == tail.get()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                parked = false;
+            }
+        }
+    }
+
+    private synchronized void drainNow() {
+        drain();
+    }
+
+    /** Write out everything published so far. Returns false if there was nothing to do. */
+    private synchronized boolean drain() {
+        long h = head;
+        if (h == tail.get()) return false;
+
+        while (h != tail.get()) {
+            int idx = (int) (h & mask);
+            String line = ring.get(idx);
+            if (line == null) {
+                // Slot claimed but not yet published by its producer
+                Thread.yield();
+                continue;
+            }
+            ring.lazySet(idx, null);
+            head = ++h;
+            write(line);
+        }
+        try {
+            if (out != null) out.flush();
+        } catch (IOException ignored) {}
+        return true;
+    }
+
+    private void write(String line) {
+        if (console) System.out.println(line);
+        written.incrementAndGet();
+        if (file == null) return;
+        try {
+            if (out == null) open();
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            out.write('\n');
+            fileBytes += bytes.length + 1;
+            if (maxBytes > 0 && fileBytes >= maxBytes) rotate();
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        fileBytes = file.length();
+        out = new BufferedOutputStream(new FileOutputStream(file, true), 16 * 1024);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        if (backups == 0) {
+            file.delete();
+        } else {
+            new File(file.getPath() + "." + backups).delete();
+            for (int i = backups - 1; i >= 1; i--) {
+                File from = new File(file.getPath() + "." + i);
+                if (from.exists()) from.renameTo(new File(file.getPath() + "." + (i + 1)));
+            }
+            file.renameTo(new File(file.getPath() + ".1"));
+        }
+        fileBytes = 0;
+    }
+
+    // === Stats ===
+
+    public long getDropped() { return dropped.get(); }
+    public long getWritten() { return written.get(); }
+    public int getQueued() { return (int) (tail.get() - head); }
+}
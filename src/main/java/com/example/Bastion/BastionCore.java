@@ -10,6 +10,7 @@ import javax.net.ssl.HttpsURLConnection;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.net.Proxy;
 
@@ -19,14 +20,24 @@ public class BastionCore {
         return webhookUrl;
     }
 
+    /** Max bytes a socket may stage before its connection is approved. */
+    public int getStagingBufferCapBytes() {
+        return stagingBufferCapBytes;
+    }
+
     // ---------------------------------------------------------
     // Singleton pattern
     // ---------------------------------------------------------
-    private static BastionCore INSTANCE;
-
-    public static synchronized BastionCore getInstance() {
-        if (INSTANCE == null) INSTANCE = new BastionCore();
-        return INSTANCE;
+    private static volatile BastionCore INSTANCE;
+
+    // Double-checked: called on every latched write, so no monitor once created
+    public static BastionCore getInstance() {
+        BastionCore core = INSTANCE;
+        if (core != null) return core;
+        synchronized (BastionCore.class) {
+            if (INSTANCE == null) INSTANCE = new BastionCore();
+            return INSTANCE;
+        }
     }
 
     // ---------------------------------------------------------
@@ -38,16 +49,39 @@ public class BastionCore {
     // ---------------------------------------------------------
     // Internal state maps
     // ---------------------------------------------------------
-    private final Map<String,DecisionState> modDecisions  = new ConcurrentHashMap<>();
-    private final Map<String,DecisionState> hostDecisions = new ConcurrentHashMap<>();
-    private final Map<String,DecisionState> urlDecisions  = new ConcurrentHashMap<>();
+    // Copy-on-write decision snapshot: readers never lock, writers swap under decisionWriteLock
+    private volatile DecisionTable decisions = DecisionTable.EMPTY;
+    private final Object decisionWriteLock = new Object();
+
+    // Bumped whenever an earlier approval may no longer hold (see DecisionLatch)
+    private final AtomicLong revocationEpoch = new AtomicLong();
+
+    // Shared daemon timer for approval deadlines (one thread for every prompt)
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "Bastion-Timer");
+        t.setDaemon(true);
+        return t;
+    });
+    static { TIMER.setRemoveOnCancelPolicy(true); }
 
     // Futures for things waiting for decision
-    private final Map<String,CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+    private final PendingDecisions pending = new PendingDecisions(TIMER);
+
+    // SHA-256 per jar in mods/, built once at startup
+    private final ModFingerprintIndex fingerprints = new ModFingerprintIndex(new File("mods"));
+    private final ScanCache scanCache;
+    private final ModsDirectoryWatcher modsWatcher = new ModsDirectoryWatcher(new File("mods"));
+
+    // Static scan findings per mod id (lower case), published by ModScanner as each jar finishes
+    private final Map<String, List<String>> staticFindings = new ConcurrentHashMap<>();
+    private volatile boolean staticScanComplete;
 
     // Captured session token (if found)
     private volatile String sessionToken = null;
 
+    // Batched, non-blocking webhook sender
+    private final WebhookDispatcher webhooks = new WebhookDispatcher(this::getWebhookUrl, 512);
+
     // Event listeners for external hooks
     private final List<BastionEventListener> listeners = new CopyOnWriteArrayList<>();
 
@@ -55,9 +89,11 @@ public class BastionCore {
     // Files and persistence
     // ---------------------------------------------------------
     private final File logFile;
-    private final PrintWriter logWriter;
+    private final AsyncLogWriter logWriter;
+    private final AsyncLogWriter promptLog;
     private final File stateFile;
     private final File configFile;
+    private final DecisionJournal journal;
 
     // ---------------------------------------------------------
     // Config values
@@ -65,6 +101,17 @@ public class BastionCore {
     private String webhookUrl = "";
     private int promptTimeoutSeconds = 180;
     private boolean logToFile = true;
+    private boolean webhookDiagnostics = false;
+    private int webhookDiagnosticsTimeoutMs = 10000;
+    private int stagingBufferCapBytes = 1 << 20;
+    private volatile LogLevel logLevel = LogLevel.INFO;
+    private long logMaxBytes = 5L << 20;
+    private int logBackups = 3;
+    private boolean watchModsDir = true;
+
+    // Startup timing (constructor entry -> ready)
+    private final long constructedAtNanos = System.nanoTime();
+    private volatile long startupMillis = -1;
 
     // ---------------------------------------------------------
     // Constructor
@@ -76,20 +123,23 @@ public class BastionCore {
         this.configFile = new File(configDir, "bastion_config.json");
         this.stateFile  = new File(configDir, "bastion_state.json");
         this.logFile    = new File(configDir, "bastion_state.log");
+        this.journal    = new DecisionJournal(new File(configDir, "bastion_state.journal"), stateFile,
+                JsonCodec::writeState);
+        this.scanCache  = new ScanCache(new File(configDir, "scan_cache.json"));
 
         // Load config, init log writer
         loadConfig();
 
-        PrintWriter writer = null;
-        try {
-            if (logToFile) writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile, true)));
-        } catch (IOException e) {
-            System.err.println("[Bastion] Failed to open log: " + e.getMessage());
-        }
-        this.logWriter = writer;
+        this.logWriter = new AsyncLogWriter("main", logToFile ? logFile : null, true, 8192, logMaxBytes, logBackups);
+        this.promptLog = new AsyncLogWriter("prompts", new File("config", "bastion_prompts.log"), false, 1024, logMaxBytes, logBackups);
+
+        long indexStart = System.nanoTime();
+        fingerprints.seed(scanCache.load() > 0 ? scanCache.entries() : Collections.<ScanCache.Entry>emptyList());
+        int hashed = fingerprints.refresh();
+        log("[Init] Fingerprinted " + fingerprints.entries().size() + " mod jars (" + hashed + " hashed) in "
+                + (System.nanoTime() - indexStart) / 1_000_000L + " ms.");
 
         loadState();
-        log("[Init] BastionCore ready.");
 
 // 🔹 Install plain SocketImplFactory (TCP) if not already set
 //        try {
@@ -120,8 +170,13 @@ public class BastionCore {
                 log("[Error] Failed to install SSLSocketFactory: " + e.getMessage());
             }
         }, "Bastion-SSL-Init").start();
-    runWebhookDiagnostics();
-}
+
+        startupMillis = (System.nanoTime() - constructedAtNanos) / 1_000_000L;
+        log("[Init] BastionCore ready in " + startupMillis + " ms.");
+
+        // Opt-in, off the constructor path
+        if (webhookDiagnostics) runWebhookDiagnosticsAsync();
+    }
 
     // ---------------------------------------------------------
     // Config loading/saving
@@ -134,17 +189,21 @@ public class BastionCore {
             saveConfig();
             return;
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(configFile))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            String json = sb.toString().trim();
-            if (!json.isEmpty()) {
-                Map<String,String> map = parseJson(json);
+        try {
+            Map<String,String> map = JsonCodec.readFlat(configFile);
+            if (!map.isEmpty()) {
                 webhookUrl = map.getOrDefault("webhookUrl", "");
                 promptTimeoutSeconds = Integer.parseInt(map.getOrDefault("promptTimeoutSeconds","180"));
                 logToFile = Boolean.parseBoolean(map.getOrDefault("logToFile","true"));
-                log("[Config] Loaded. webhookUrl=" + webhookUrl + ", timeout=" + promptTimeoutSeconds + ", logToFile=" + logToFile);
+                webhookDiagnostics = Boolean.parseBoolean(map.getOrDefault("webhookDiagnostics","false"));
+                webhookDiagnosticsTimeoutMs = Integer.parseInt(map.getOrDefault("webhookDiagnosticsTimeoutMs","10000"));
+                stagingBufferCapBytes = Integer.parseInt(map.getOrDefault("stagingBufferCapBytes","1048576"));
+                logLevel = LogLevel.parse(map.getOrDefault("logLevel", "INFO"));
+                logMaxBytes = Long.parseLong(map.getOrDefault("logMaxBytes", "5242880"));
+                logBackups = Integer.parseInt(map.getOrDefault("logBackups", "3"));
+                watchModsDir = Boolean.parseBoolean(map.getOrDefault("watchModsDir", "true"));
+                log("[Config] Loaded. webhookUrl=" + webhookUrl + ", timeout=" + promptTimeoutSeconds + ", logToFile=" + logToFile
+                        + ", webhookDiagnostics=" + webhookDiagnostics);
             }
         } catch (Exception e) {
             System.err.println("[Bastion] Failed to load config, using defaults: " + e.getMessage());
@@ -155,12 +214,19 @@ public class BastionCore {
      * Save current config to file
      */
     private void saveConfig() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(configFile))) {
+        try {
             Map<String,String> map = new LinkedHashMap<>();
             map.put("webhookUrl", webhookUrl);
             map.put("promptTimeoutSeconds", String.valueOf(promptTimeoutSeconds));
             map.put("logToFile", String.valueOf(logToFile));
-            pw.write(toJson(map));
+            map.put("webhookDiagnostics", String.valueOf(webhookDiagnostics));
+            map.put("webhookDiagnosticsTimeoutMs", String.valueOf(webhookDiagnosticsTimeoutMs));
+            map.put("stagingBufferCapBytes", String.valueOf(stagingBufferCapBytes));
+            map.put("logLevel", logLevel.name());
+            map.put("logMaxBytes", String.valueOf(logMaxBytes));
+            map.put("logBackups", String.valueOf(logBackups));
+            map.put("watchModsDir", String.valueOf(watchModsDir));
+            JsonCodec.writeFlat(map, configFile);
             log("[Config] Saved to " + configFile.getName());
         } catch (IOException e) {
             log("[Error] Failed to save config: " + e.getMessage());
@@ -172,15 +238,7 @@ public class BastionCore {
 // Enforcement entry points
 // ---------------------------------------------------------
     public boolean enforceDecision(String modName, String hostKey, String fullUrl, String reason) throws IOException {
-        // If the mod itself is approved, bypass everything
-        if (modName != null) {
-            String modKey = modName.toLowerCase(Locale.ROOT);
-            if (modDecisions.getOrDefault(modKey, DecisionState.UNDECIDED) == DecisionState.APPROVED) {
-                log("[Bypass] " + modName + " is globally approved — skipping Bastion enforcement.");
-                return true; // let the rat’s own request execute
-            }
-        }
-
+        // A mod-wide decision is answered by requestApproval's lookup, ahead of host and URL decisions
         CompletableFuture<Boolean> future = requestApproval(modName, hostKey, fullUrl, reason);
         boolean allowed = awaitApproval(modName, hostKey, fullUrl, future);
         if (!allowed) {
@@ -218,52 +276,58 @@ public class BastionCore {
 
         String key = makeKey(mod, host, url);
 
-        return pending.computeIfAbsent(key, k -> {
-            log("[Approval] Request queued → " + key + " (" + reason + ")");
-            CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = pending.register(key, future);
+        if (existing != null) return existing;
 
-            Severity sev = classifyFromReason(reason, host, url);
-            int color = toastColor(sev);
+        // Static scan findings, if this mod's jar has been scanned yet; otherwise the runtime reason stands alone.
+        // Findings are keyed by modId; callers that attribute by display name (HTTP) or not at all
+        // (BastionHooks) are still on the requesting thread, so the modId comes from its stack.
+        List<String> scanned = getStaticFindings(mod);
+        if (scanned == null) scanned = getStaticFindings(CallerAttributionCache.callerModId());
+        if (scanned != null && !scanned.isEmpty()) reason = reason + " [static scan: " + String.join(", ", scanned) + "]";
 
-            // === LOW severity ===
-            if (sev == Severity.LOW) {
-                ToastManager.addToast("[Bastion] Notice: " + mod + " → " + reason, color);
-                sendWebhook("[Bastion] Notice: " + mod + " → " + reason);
-                recordDecision(mod, host, url, DecisionState.APPROVED, false);
-                future.complete(true);
-                return future;
-            }
+        log("[Approval] Request queued → " + key + " (" + reason + ")");
 
-            // === MEDIUM/CRITICAL severity ===
-            GuiSessionPrompt.open(
-                    mod,
-                    reason,
-                    GuiSessionPrompt.PromptType.SOCKET,
-                    host,
-                    url,
-                    () -> {
-                        recordDecision(mod, host, url, DecisionState.APPROVED, true);
-                        future.complete(true);
-                    },
-                    () -> {
-                        recordDecision(mod, host, url, DecisionState.DENIED, true);
-                        future.complete(false);
-                    }
-            );
+        Severity sev = classifyFromReason(reason, host, url);
+        int color = toastColor(sev);
 
-            ToastManager.addToast("[Bastion] Suspicious: " + mod + " → " + reason, color);
-            sendWebhook("[Bastion] Suspicious: " + mod + " → " + reason);
+        // === LOW severity ===
+        if (sev == Severity.LOW) {
+            ToastManager.addToast("[Bastion] Notice: " + mod + " → " + reason, color);
+            sendWebhook("[Bastion] Notice: " + mod + " → " + reason, Severity.LOW);
+            recordDecision(mod, host, url, DecisionState.APPROVED, false);
+            future.complete(true);
+            return future;
+        }
 
-            Executors.newSingleThreadScheduledExecutor().schedule(() -> {
-                if (!future.isDone()) {
-                    log("[Decision] Timeout → auto-deny " + key);
+        // === MEDIUM/CRITICAL severity ===
+        GuiSessionPrompt.open(
+                mod,
+                reason,
+                GuiSessionPrompt.PromptType.SOCKET,
+                host,
+                url,
+                () -> {
+                    recordDecision(mod, host, url, DecisionState.APPROVED, true);
+                    future.complete(true);
+                },
+                () -> {
                     recordDecision(mod, host, url, DecisionState.DENIED, true);
                     future.complete(false);
                 }
-            }, promptTimeoutSeconds, TimeUnit.SECONDS);
+        );
 
-            return future;
+        ToastManager.addToast("[Bastion] Suspicious: " + mod + " → " + reason, color);
+        sendWebhook("[Bastion] Suspicious: " + mod + " → " + reason, sev);
+
+        pending.scheduleTimeout(key, promptTimeoutSeconds, TimeUnit.SECONDS, () -> {
+            log("[Decision] Timeout → auto-deny " + key);
+            recordDecision(mod, host, url, DecisionState.DENIED, true);
+            future.complete(false);
         });
+
+        return future;
     }
 
     public boolean awaitApproval(String mod, String host, String url, CompletableFuture<Boolean> future) {
@@ -291,54 +355,52 @@ public CompletableFuture<Boolean> requestStaticScanApproval(String mod, File jar
 
     String key = makeKey(mod, null, null);
 
+    CompletableFuture<Boolean> future = new CompletableFuture<>();
+    CompletableFuture<Boolean> existing = pending.register(key, future);
+    if (existing != null) return existing;
 
-    return pending.computeIfAbsent(key, k -> {
-        log("[StaticScan] Request queued → " + key + " (" + reason + ")");
-        CompletableFuture<Boolean> future = new CompletableFuture<>();
+    log("[StaticScan] Request queued → " + key + " (" + reason + ")");
 
-        Severity sev = classifyIndicators(indicators);
-        int color = toastColor(sev);
+    Severity sev = classifyIndicators(indicators);
+    int color = toastColor(sev);
 
 // LOW severity = auto-approve, no GUI
-        if (sev == Severity.LOW) {
-            sendWebhook("[Bastion] StaticScan notice: " + mod + " flagged " + indicators);
-            recordDecision(mod, null, null, DecisionState.APPROVED, false);
-            future.complete(true);
-            return future;
-        }
+    if (sev == Severity.LOW) {
+        sendWebhook("[Bastion] StaticScan notice: " + mod + " flagged " + indicators, Severity.LOW);
+        recordDecision(mod, null, null, DecisionState.APPROVED, false);
+        future.complete(true);
+        return future;
+    }
 
 // === MEDIUM/CRITICAL severity ===
-        GuiSessionPrompt.open(
-                mod,
-                reason,
-                GuiSessionPrompt.PromptType.HTTP,
-                null,
-                null,
-                () -> {
-                    recordDecision(mod, hostPort, null, DecisionState.APPROVED, true);
-                    future.complete(true);
-                },
-                () -> {
-                    recordDecision(mod, null, null, DecisionState.DENIED, true);
-                    future.complete(false);
-                }
-        );
-
-
-
-        ToastManager.addToast("[Bastion] StaticScan: " + mod + " flagged " + indicators, color);
-        sendWebhook("[Bastion] StaticScan: " + mod + " flagged " + indicators);
-
-        Executors.newSingleThreadScheduledExecutor().schedule(() -> {
-            if (!future.isDone()) {
-                log("[StaticScan] Timeout → auto-deny " + key);
+    GuiSessionPrompt.open(
+            mod,
+            reason,
+            GuiSessionPrompt.PromptType.HTTP,
+            null,
+            null,
+            () -> {
+                recordDecision(mod, hostPort, null, DecisionState.APPROVED, true);
+                future.complete(true);
+            },
+            () -> {
                 recordDecision(mod, null, null, DecisionState.DENIED, true);
                 future.complete(false);
             }
-        }, promptTimeoutSeconds, TimeUnit.SECONDS);
+    );
 
-        return future;
+
+
+    ToastManager.addToast("[Bastion] StaticScan: " + mod + " flagged " + indicators, color);
+    sendWebhook("[Bastion] StaticScan: " + mod + " flagged " + indicators, sev);
+
+    pending.scheduleTimeout(key, promptTimeoutSeconds, TimeUnit.SECONDS, () -> {
+        log("[StaticScan] Timeout → auto-deny " + key);
+        recordDecision(mod, null, null, DecisionState.DENIED, true);
+        future.complete(false);
     });
+
+    return future;
 }
 
 // ---------------------------------------------------------
@@ -359,76 +421,59 @@ public synchronized void cancelPending(String mod) { cancelPending(mod, null, nu
     // ---------------------------------------------------------
 // Record decision
 // ---------------------------------------------------------
-    public synchronized void recordDecision(String mod, String host, String fullUrl,
-                                            DecisionState state, boolean remember) {
+    public void recordDecision(String mod, String host, String fullUrl,
+                               DecisionState state, boolean remember) {
         if (mod == null || isSelf(mod)) return;
 
-        String modKey = mod.toLowerCase(Locale.ROOT);
-        String hash = "nohash";
-        try {
-            File modsDir = new File("mods");
-            if (modsDir.exists() && modsDir.isDirectory()) {
-                final String searchKey = modKey; // make it effectively final for lambda
-                File[] jars = modsDir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).contains(searchKey));
-
-                if (jars != null && jars.length > 0) {
-                    hash = sha256(jars[0]);
-                }
+        String hash = fingerprints.fingerprint(mod);
+        String modKey = DecisionTable.modKey(mod, hash);
+        String hostKey = (host != null) ? DecisionTable.hostKey(modKey, host) : null;
+        String urlKey  = (fullUrl != null) ? DecisionTable.urlKey(modKey, fullUrl) : null;
+
+        List<DecisionJournal.Record> changes = new ArrayList<>();
+        synchronized (decisionWriteLock) {
+            DecisionTable.Builder next = decisions.toBuilder();
+
+            // --- Store at the most specific level ---
+            if (urlKey != null) {
+                put(next, changes, DecisionTable.Kind.URL, urlKey, state);
+            } else if (hostKey != null) {
+                put(next, changes, DecisionTable.Kind.HOST, hostKey, state);
+            } else {
+                put(next, changes, DecisionTable.Kind.MOD, modKey, state);
             }
-        } catch (Exception ignored) {}
-        modKey = modKey + "#" + hash;
 
-        String hostKey = (host != null) ? modKey + "@" + host.toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "") : null;
-        String urlKey  = null;
+            // --- Cascade approval (ensures bypass works everywhere) ---
+            if (state == DecisionState.APPROVED) {
+                put(next, changes, DecisionTable.Kind.MOD, modKey, state);
 
-        if (fullUrl != null) {
-            try {
-                URL u = new URL(fullUrl);
-                urlKey = modKey + "@" + u.getHost().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            } catch (Exception ignored) {}
-        }
+                if (hostKey != null) put(next, changes, DecisionTable.Kind.HOST, hostKey, state);
+                if (urlKey != null)  put(next, changes, DecisionTable.Kind.URL, urlKey, state);
 
-        // --- Store at the most specific level ---
-        if (urlKey != null) {
-            urlDecisions.put(urlKey, state);
-        } else if (hostKey != null) {
-            hostDecisions.put(hostKey, state);
-        } else {
-            modDecisions.put(modKey, state);
-        }
+                // Always seed Discord hosts for this mod
+                for (String h : DISCORD_HOST_LIST) {
+                    put(next, changes, DecisionTable.Kind.HOST, modKey + "@" + h, state);
+                }
 
-        // --- Cascade approval (ensures bypass works everywhere) ---
-        // --- Cascade approval (ensures bypass works everywhere) ---
-        if (state == DecisionState.APPROVED) {
-            modDecisions.put(modKey, state);
-
-            if (hostKey != null) hostDecisions.put(hostKey, state);
-            if (urlKey != null)  urlDecisions.put(urlKey, state);
-
-            // Always seed Discord hosts for this mod
-            hostDecisions.put(modKey + "@discord.com", state);
-            hostDecisions.put(modKey + "@discordapp.com", state);
-            hostDecisions.put(modKey + "@discordapp.net", state);
-            hostDecisions.put(modKey + "@discord.gg", state);
-
-            // If mod is unknown, cascade approval globally for session
-            if (mod.startsWith("unknown-mod")) {
-                for (String h : new String[]{
-                        "discord.com","discordapp.com","discordapp.net","discord.gg"
-                }) {
-                    hostDecisions.put("unknown-mod#" + hash + "@" + h, state);
+                // If mod is unknown, cascade approval globally for session
+                if (mod.startsWith("unknown-mod")) {
+                    for (String h : DISCORD_HOST_LIST) {
+                        put(next, changes, DecisionTable.Kind.HOST, "unknown-mod#" + hash + "@" + h, state);
+                    }
                 }
             }
-        }
 
+            decisions = next.build();
+            // Queued under the same lock, so the journal replays writers in table order
+            if (remember) journal.appendAll(changes);
+        }
+        if (state == DecisionState.DENIED) revocationEpoch.incrementAndGet();
 
         // --- Log + notify ---
         String effectiveKey = (urlKey != null ? urlKey : hostKey != null ? hostKey : modKey);
         log("[Decision] " + effectiveKey + " -> " + state + (remember ? " [remember]" : " [session]"));
         fireDecision(mod, host, fullUrl, state);
 
-        if (remember) saveState();
-
         // --- Resolve any pending futures ---
         CompletableFuture<Boolean> future = pending.remove(effectiveKey);
         if (future != null && !future.isDone()) {
@@ -436,186 +481,85 @@ public synchronized void cancelPending(String mod) { cancelPending(mod, null, nu
         }
     }
 
-    // ---------------------------------------------------------
-// Normalized key handling for consistent decisions
-// ---------------------------------------------------------
+    // Stage a change in the next table and remember it for the journal
+    private static void put(DecisionTable.Builder next, List<DecisionJournal.Record> changes,
+                            DecisionTable.Kind kind, String key, DecisionState state) {
+        next.put(kind, key, state);
+        changes.add(DecisionJournal.Record.put(kind, key, state));
+    }
+
     // ---------------------------------------------------------
 // Normalized key handling for consistent decisions
 // ---------------------------------------------------------
     private String makeKey(String mod, String host, String url) {
-        String modKey = (mod != null) ? mod.toLowerCase(Locale.ROOT) : "unknownmod";
+        String modName = (mod != null) ? mod : "unknownmod";
 
-        // Attempt to locate the mod jar and fingerprint it
-        String hash = "nohash";
-        try {
-            File modsDir = new File("mods");
-            if (modsDir.exists() && modsDir.isDirectory()) {
-                final String searchKey = modKey; // make it effectively final for lambda
-                File[] jars = modsDir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).contains(searchKey));;
-                if (jars != null && jars.length > 0) {
-                    hash = sha256(jars[0]); // fingerprint the first matching jar
-                }
-            }
-        } catch (Exception ignored) {}
+        // Fingerprint of the mod jar (memoized, see ModFingerprintIndex)
+        String baseKey = DecisionTable.modKey(modName, fingerprints.fingerprint(modName));
 
-        String baseKey = modKey + "#" + hash;
-
-        try {
-            if (url != null) {
-                URL u = new URL(url);
-                return baseKey + "@" + u.getHost().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            }
-        } catch (Exception ignored) {}
+        if (url != null) {
+            String urlKey = DecisionTable.urlKey(baseKey, url);
+            if (urlKey != null) return urlKey;
+        }
         if (host != null) {
-            return baseKey + "@" + host.toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
+            return DecisionTable.hostKey(baseKey, host);
         }
         return baseKey;
     }
 
 
-    public synchronized DecisionState queryDecision(String mod, String host, String fullUrl) {
+    /**
+     * Lock-free lookup against the current decision snapshot.
+     */
+    public DecisionState queryDecision(String mod, String host, String fullUrl) {
         if (mod == null) return DecisionState.UNDECIDED;
         if (isSelf(mod)) return DecisionState.APPROVED;
-
-        String modKey = mod.toLowerCase(Locale.ROOT);
-        String hash = "nohash";
-        try {
-            File modsDir = new File("mods");
-            if (modsDir.exists() && modsDir.isDirectory()) {
-                final String searchKey = modKey;
-                File[] jars = modsDir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).contains(searchKey));
-                if (jars != null && jars.length > 0) {
-                    hash = sha256(jars[0]);
-                }
-            }
-        } catch (Exception ignored) {}
-        modKey = modKey + "#" + hash;
-
-        String hostKey = (host != null) ? modKey + "@" + host.toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "") : null;
-        String urlKey  = null;
-
-        if (fullUrl != null) {
-            try {
-                URL u = new URL(fullUrl);
-                urlKey = modKey + "@" + u.getHost().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            } catch (Exception ignored) {
-                urlKey = modKey + "@" + fullUrl.toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            }
-        }
-
-        // --- Global mod decision overrides everything ---
-        if (modDecisions.containsKey(modKey)) {
-            return modDecisions.get(modKey);
-        }
-
-        // --- Otherwise, host-level decision ---
-        if (hostKey != null && hostDecisions.containsKey(hostKey)) {
-            return hostDecisions.get(hostKey);
-        }
-
-        // --- Finally, URL-level decision ---
-        if (urlKey != null && urlDecisions.containsKey(urlKey)) {
-            return urlDecisions.get(urlKey);
-        }
-
-        return DecisionState.UNDECIDED;
+        return decisions.query(mod, fingerprints.fingerprint(mod), host, fullUrl);
     }
 
 
     // ---------------------------------------------------------
 // State persistence
 // ---------------------------------------------------------
-private synchronized void saveState() {
-    try (PrintWriter pw = new PrintWriter(new FileWriter(stateFile))) {
-        Map<String,String> all = new LinkedHashMap<>();
-
-        for (Map.Entry<String,DecisionState> e : modDecisions.entrySet()) {
-            String k = e.getKey().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            all.put(k, e.getValue().name());
-        }
-        for (Map.Entry<String,DecisionState> e : hostDecisions.entrySet()) {
-            String k = e.getKey().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            all.put(k, e.getValue().name());
-        }
-        for (Map.Entry<String,DecisionState> e : urlDecisions.entrySet()) {
-            String k = e.getKey().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-            all.put(k, e.getValue().name());
-        }
-
-        pw.write(toJson(all));
-        log("[State] Saved " + all.size() + " remembered decisions.");
-    } catch (IOException e) {
-        log("[State] Failed to save decisions: " + e.getMessage());
-    }
-}
-
+// Snapshot (bastion_state.json) + append-only journal, see DecisionJournal.
+// Only remembered decisions are journaled; session decisions stay in memory.
 
     private void loadState() {
-        if (!stateFile.exists()) return;
-        try (BufferedReader br = new BufferedReader(new FileReader(stateFile))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            String json = sb.toString().trim();
-            if (!json.isEmpty()) {
-                Map<String,String> map = parseJson(json);
-                for (Map.Entry<String,String> e : map.entrySet()) {
-                    DecisionState st = DecisionState.valueOf(e.getValue());
-                    String k = e.getKey();
-
-                    // normalize the key the same way makeKey() does
-                    String normalized = k.toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
-
-                    if (normalized.contains("@")) {
-                        if (normalized.contains("http") || normalized.contains("https")) {
-                            urlDecisions.put(normalized, st);
-                        } else {
-                            hostDecisions.put(normalized, st);
-                        }
-                    } else {
-                        modDecisions.put(normalized, st);
-                    }
-                }
-                log("[State] Loaded " + map.size() + " remembered decisions.");
+        Map<DecisionTable.Kind, Map<String, DecisionState>> state = new EnumMap<>(DecisionTable.Kind.class);
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) state.put(kind, new LinkedHashMap<>());
+
+        int loaded = 0;
+        if (stateFile.exists()) {
+            try {
+                // v2 has explicit sections; the kind guess only applies to old flat files
+                loaded = JsonCodec.readState(stateFile, state, key -> !key.contains("@") ? DecisionTable.Kind.MOD
+                        : key.contains("http") ? DecisionTable.Kind.URL : DecisionTable.Kind.HOST);
+            } catch (Exception e) {
+                log("[State] Failed to load decisions: " + e.getMessage());
             }
-        } catch (Exception e) {
-            log("[State] Failed to load decisions: " + e.getMessage());
         }
-    }
-
 
-// ---------------------------------------------------------
-// JSON helpers
-// ---------------------------------------------------------
-private String toJson(Map<String,String> map) {
-    StringBuilder sb = new StringBuilder("{");
-    boolean first = true;
-    for (Map.Entry<String,String> e : map.entrySet()) {
-        if (!first) sb.append(",");
-        sb.append("\"").append(e.getKey().replace("\"","\\\"")).append("\":\"")
-                .append(e.getValue()).append("\"");
-        first = false;
-    }
-    sb.append("}");
-    return sb.toString();
-}
-    private Map<String,String> parseJson(String json) {
-        Map<String,String> map = new LinkedHashMap<>();
-        json = json.trim();
-        if (json.startsWith("{") && json.endsWith("}")) {
-            json = json.substring(1, json.length()-1);
+        int replayed = 0;
+        try {
+            replayed = journal.replay(state);
+        } catch (IOException e) {
+            log("[State] Failed to replay decision journal: " + e.getMessage());
         }
-        for (String part : json.split(",")) {
-            String[] kv = part.split(":", 2); // split only on first colon
-            if (kv.length == 2) {
-                String key = kv[0].trim().replace("\"", "");
-                String value = kv[1].trim().replace("\"", "");
-                map.put(key, value);
+
+        DecisionTable.Builder next = DecisionTable.EMPTY.toBuilder();
+        for (Map.Entry<DecisionTable.Kind, Map<String, DecisionState>> k : state.entrySet()) {
+            for (Map.Entry<String, DecisionState> e : k.getValue().entrySet()) {
+                next.put(k.getKey(), e.getKey(), e.getValue());
             }
         }
-        return map;
+        synchronized (decisionWriteLock) {
+            decisions = next.build();
+        }
+        log("[State] Loaded " + loaded + " remembered decisions, replayed " + replayed + " journal records.");
     }
 
+    public DecisionJournal getDecisionJournal() { return journal; }
+
 
 // ---------------------------------------------------------
 // Severity classification
@@ -657,9 +601,10 @@ private Severity classifyFromReason(String reason, String host, String url) {
 // ---------------------------------------------------------
 // Suspicion helpers
 // ---------------------------------------------------------
-private static final Set<String> DISCORD_HOSTS = new HashSet<>(Arrays.asList(
+private static final String[] DISCORD_HOST_LIST = {
         "discord.com","discordapp.com","discordapp.net","discord.gg"
-));
+};
+private static final Set<String> DISCORD_HOSTS = new HashSet<>(Arrays.asList(DISCORD_HOST_LIST));
 private static final Pattern TOKEN_PATTERN =
         Pattern.compile("(?i)\\b(session|token|sid)[=:]([a-f0-9\\-]{16,})");
 private static final Pattern UUID_PATTERN =
@@ -668,7 +613,17 @@ private static final Pattern UUID_PATTERN =
 
 private boolean isDiscordHost(String host) { return host != null && DISCORD_HOSTS.contains(host.toLowerCase(Locale.ROOT)); }
 private boolean looksLikeToken(String text) { return text != null && TOKEN_PATTERN.matcher(text).find(); }
-public static boolean containsTokenData(String payload) { return payload != null && TOKEN_PATTERN.matcher(payload).find(); }
+public static boolean containsTokenData(String payload) {
+    if (payload == null) return false;
+    byte[] b = payload.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+    return containsTokenData(b, 0, b.length);
+}
+/** TOKEN_PATTERN over raw bytes, one pass of the shared IndicatorMatcher. */
+public static boolean containsTokenData(byte[] b, int off, int len) {
+    IndicatorMatcher.TokenProbe probe = new IndicatorMatcher.TokenProbe().reset(b, off, len);
+    IndicatorMatcher.DEFAULT.scan(b, off, len, probe);
+    return probe.found();
+}
 public static boolean containsUuidOnly(String payload) { return payload != null && UUID_PATTERN.matcher(payload).find() && !containsTokenData(payload); }
 
 public static boolean isSuspiciousHost(String host) {
@@ -691,60 +646,78 @@ private static final String[] HARD_SUFFIXES = { ".mojang.com",".minecraft.net","
     // ---------------------------------------------------------
 // Webhook sender (RAW, bypasses Bastion enforcement)
 // ---------------------------------------------------------
-    public synchronized void sendWebhook(String msg) {
-        String finalMsg = "[Bastion RAW] " + msg; // 🔹 always tag message
-        System.out.println("[Bastion][Webhook][RAW] Attempting to send: " + finalMsg);
+    public void sendWebhook(String msg) {
+        sendWebhook(msg, Severity.MEDIUM);
+    }
 
-        if (webhookUrl == null || webhookUrl.trim().isEmpty()) {
-            System.out.println("[Bastion][Webhook][RAW] No webhookUrl configured.");
-            return;
-        }
+    /**
+     * Queue a webhook line; delivery happens on the dispatcher thread.
+     * LOW lines are the first to go if the queue backs up.
+     */
+    public void sendWebhook(String msg, Severity severity) {
+        webhooks.enqueue("[Bastion RAW] " + msg, severity); // 🔹 always tag message
+    }
 
-        try {
-            URL url = new URL(webhookUrl);
+    public WebhookDispatcher getWebhookDispatcher() { return webhooks; }
 
-            // 🔹 Use stock HTTPS connection, no Bastion socket factories
-            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "Bastion-RawWebhook");
 
-            // 🔹 JSON payload
-            String payload = "{\"content\":\"" + finalMsg.replace("\"", "\\\"") + "\"}";
+    public enum LogLevel {
+        DEBUG, INFO, WARN, ERROR;
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(payload.getBytes("UTF-8"));
+        static LogLevel parse(String s) {
+            try {
+                return valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (Exception e) {
+                return INFO;
             }
+        }
+    }
 
-            int responseCode = conn.getResponseCode();
-            System.out.println("[Bastion][Webhook][RAW] Discord responded: " + responseCode);
+    /** Info-level line; queued for the background writer, never blocks. */
+    public void log(String msg) {
+        log(LogLevel.INFO, msg);
+    }
 
-            // Always drain/close input stream to free the connection
-            try (InputStream in = conn.getInputStream()) {
-                while (in.read() != -1) { /* drain */ }
-            }
-            conn.disconnect();
+    public void log(LogLevel level, String msg) {
+        if (level.compareTo(logLevel) < 0) return;
+        String line = "[Bastion] " + msg;
+        AsyncLogWriter w = logWriter;
+        if (w == null) System.out.println(line); // still in the constructor
+        else w.append(line);
+    }
 
-        } catch (Exception e) {
-            System.out.println("[Bastion][Webhook][RAW][Error] " + e.getClass().getSimpleName() + ": " + e.getMessage());
-        }
+    /** Guard string building with isDebugEnabled() on hot paths. */
+    public void debug(String msg) {
+        log(LogLevel.DEBUG, msg);
     }
 
+    public boolean isDebugEnabled() {
+        return logLevel == LogLevel.DEBUG;
+    }
 
-    public synchronized void log(String msg) {
-    String line = "[Bastion] " + msg;
-    System.out.println(line);
-    if (logToFile && logWriter != null) {
-        logWriter.println(line);
-        logWriter.flush();
+    public void setLogLevel(LogLevel level) {
+        logLevel = level;
+    }
+
+    /** Append-only sink for config/bastion_prompts.log. */
+    public void logPrompt(String line) {
+        promptLog.append(line);
+    }
+
+    public long getDroppedLogLines() {
+        return logWriter.getDropped() + promptLog.getDropped();
     }
-}
 
 // ---------------------------------------------------------
 // Utils
 // ---------------------------------------------------------
-public boolean isSelf(String modName) { return modName != null && modName.toLowerCase().contains("bastion"); }
+public boolean isSelf(String modName) {
+    if (modName == null) return false;
+    for (int i = 0, n = modName.length() - 7; i <= n; i++) {
+        if (modName.regionMatches(true, i, "bastion", 0, 7)) return true;
+    }
+    return false;
+}
 public static String normalizeHostPort(URL url) { return url.getHost() + ":" + url.getPort(); }
 public static String normalizeHostPort(String host, int port) { return host + ":" + port; }
 
@@ -755,6 +728,25 @@ public void setSessionToken(String token) {
     fireSession("bastion", token);
 }
 public String getSessionToken() { return sessionToken; }
+public ModFingerprintIndex getFingerprintIndex() { return fingerprints; }
+public ScanCache getScanCache() { return scanCache; }
+
+public void publishScanResult(String modId, File jar, List<String> findings) {
+    staticFindings.put(modId.toLowerCase(Locale.ROOT), Collections.unmodifiableList(new ArrayList<>(findings)));
+    if (isDebugEnabled()) debug("[BastionScan] Published " + modId + " (" + jar.getName() + "): " + findings.size() + " findings");
+}
+/** Findings for this mod's jar, or null if its scan hasn't finished (or it isn't a scanned jar). */
+public List<String> getStaticFindings(String mod) {
+    return mod == null ? null : staticFindings.get(mod.toLowerCase(Locale.ROOT));
+}
+public void forgetScanResult(String modId) {
+    if (modId != null) staticFindings.remove(modId.toLowerCase(Locale.ROOT));
+}
+public void markStaticScanComplete() { staticScanComplete = true; }
+public ModsDirectoryWatcher getModsWatcher() { return modsWatcher; }
+public boolean isWatchModsDir() { return watchModsDir; }
+public boolean isStaticScanComplete() { return staticScanComplete; }
+public PendingDecisions getPendingDecisions() { return pending; }
 
 public void setDecision(String mod, DecisionState state, boolean remember) {
     recordDecision(mod, null, null, state, remember);
@@ -774,6 +766,13 @@ public void fireDecision(String mod, String host, String url, DecisionState stat
         l.onDecision(mod, host, url, state);
     }
 }
+public void fireHealthProbe(String probe, boolean healthy, long elapsedMillis, String detail) {
+    for (BastionEventListener l : listeners) {
+        l.onHealthProbe(probe, healthy, elapsedMillis, detail);
+    }
+}
+public void addListener(BastionEventListener l) { listeners.add(l); }
+public void removeListener(BastionEventListener l) { listeners.remove(l); }
 public void fireSession(String mod, String payload) {
     Severity sev;
     if (containsTokenData(payload)) sev = Severity.CRITICAL;
@@ -797,10 +796,35 @@ public void approve(String mod) { recordDecision(mod, null, null, DecisionState.
 public void deny(String mod) { recordDecision(mod, null, null, DecisionState.DENIED, true); }
 public void approveOnce(String mod) { recordDecision(mod, null, null, DecisionState.APPROVED, false); }
 public void denyOnce(String mod) { recordDecision(mod, null, null, DecisionState.DENIED, false); }
+public long revocationEpoch() { return revocationEpoch.get(); }
+/** Force every latched connection to re-check policy on its next operation. */
+public void revokeLatchedDecisions() {
+    revocationEpoch.incrementAndGet();
+    log("[Decision] Latched approvals revoked.");
+}
+/**
+ * Drop every decision recorded against a jar fingerprint (jar deleted or replaced) and make
+ * latched connections re-check. Returns the number of entries removed.
+ */
+public int forgetFingerprint(String sha256) {
+    if (sha256 == null || ModFingerprintIndex.NO_HASH.equals(sha256)) return 0;
+    List<DecisionJournal.Record> changes = new ArrayList<>();
+    synchronized (decisionWriteLock) {
+        DecisionTable.Builder next = decisions.toBuilder();
+        next.removeFingerprint(sha256, (kind, key) -> changes.add(DecisionJournal.Record.remove(kind, key)));
+        if (changes.isEmpty()) return 0;
+        decisions = next.build();
+        journal.appendAll(changes);
+    }
+    revocationEpoch.incrementAndGet();
+    return changes.size();
+}
 public void clearDecisions() {
-    modDecisions.clear();
-    hostDecisions.clear();
-    urlDecisions.clear();
+    synchronized (decisionWriteLock) {
+        decisions = DecisionTable.EMPTY;
+        journal.append(DecisionJournal.Record.clear());
+    }
+    revocationEpoch.incrementAndGet();
     pending.clear();
     log("[Clear] All decisions cleared.");
     }
@@ -824,90 +848,118 @@ public void clearDecisions() {
         }
     }
     // ---------------------------------------------------------
-    // Webhook Debug Tester (runs multiple methods)
+    // Webhook health probe (opt-in via "webhookDiagnostics")
     // ---------------------------------------------------------
-    public void runWebhookDiagnostics() {
+
+    /**
+     * Run the webhook probes on a daemon thread. The future completes with true if every probe
+     * got a 2xx, false on failure or once webhookDiagnosticsTimeoutMs has passed.
+     */
+    public CompletableFuture<Boolean> runWebhookDiagnosticsAsync() {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(webhookDiagnosticsTimeoutMs);
+
+        Thread t = new Thread(() -> {
+            try {
+                result.complete(runWebhookDiagnostics(deadline));
+            } catch (Throwable e) {
+                result.complete(false);
+            }
+        }, "Bastion-Diagnostics");
+        t.setDaemon(true);
+        t.start();
+
+        TIMER.schedule(() -> {
+            if (result.complete(false)) {
+                log("[Webhook][TEST] Diagnostics exceeded " + webhookDiagnosticsTimeoutMs + " ms deadline.");
+                fireHealthProbe("deadline", false, webhookDiagnosticsTimeoutMs, "timed out");
+            }
+        }, webhookDiagnosticsTimeoutMs, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /** Blocking variant, bounded by the configured deadline. */
+    public boolean runWebhookDiagnostics() {
+        return runWebhookDiagnostics(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(webhookDiagnosticsTimeoutMs));
+    }
+
+    private boolean runWebhookDiagnostics(long deadlineNanos) {
         if (webhookUrl == null || webhookUrl.trim().isEmpty()) {
             log("[Webhook][TEST] No webhookUrl configured.");
-            return;
+            return false;
         }
 
         log("========== Bastion Webhook Diagnostics ==========");
+        boolean ok = true;
 
         // --- Method 1: Raw HttpsURLConnection with clean SSLContext ---
-        try {
-            log("[Webhook][TEST1] Raw HttpsURLConnection + clean SSLContext");
-            URL url = new URL(webhookUrl);
+        ok &= probeWebhook("TEST1", "Raw HttpsURLConnection + clean SSLContext", deadlineNanos, conn -> {
             SSLContext ctx = SSLContext.getInstance("TLS");
             ctx.init(null, null, null);
+            if (conn instanceof HttpsURLConnection) ((HttpsURLConnection) conn).setSSLSocketFactory(ctx.getSocketFactory());
+        });
 
-            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection(Proxy.NO_PROXY);
-            conn.setSSLSocketFactory(ctx.getSocketFactory());
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "Bastion-TestWebhook-1");
-
-            String payload = "{\"content\":\"[TEST1] If you see this, Method1 worked.\"}";
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(payload.getBytes("UTF-8"));
+        // --- Method 2: HttpsURLConnection with JVM default SSL (may be intercepted) ---
+        ok &= probeWebhook("TEST2", "HttpsURLConnection + default SSLSocketFactory", deadlineNanos, conn -> {
+            if (conn instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) conn).setSSLSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault());
             }
-            int response = conn.getResponseCode();
-            log("[Webhook][TEST1] Response code: " + response);
-            conn.getInputStream().close();
-        } catch (Exception e) {
-            log("[Webhook][TEST1][Error] " + e.getMessage());
+        });
+
+        // --- Method 3: Plain URLConnection (trust JVM defaults blindly) ---
+        ok &= probeWebhook("TEST3", "Plain URLConnection (no SSL override)", deadlineNanos, conn -> {});
+
+        log("========== End of Webhook Diagnostics ==========");
+        return ok;
+    }
+
+    private interface ProbeSetup {
+        void apply(java.net.HttpURLConnection conn) throws Exception;
+    }
+
+    private boolean probeWebhook(String name, String label, long deadlineNanos, ProbeSetup setup) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMs <= 0) {
+            log("[Webhook][" + name + "] Skipped, deadline reached.");
+            fireHealthProbe(name, false, 0, "skipped: deadline reached");
+            return false;
         }
 
-        // --- Method 2: HttpsURLConnection with JVM default SSL (may be intercepted) ---
+        log("[Webhook][" + name + "] " + label);
+        long start = System.nanoTime();
+        boolean healthy = false;
+        String detail;
         try {
-            log("[Webhook][TEST2] HttpsURLConnection + default SSLSocketFactory");
-            URL url = new URL(webhookUrl);
-            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection(Proxy.NO_PROXY);
-            conn.setSSLSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault());
+            java.net.HttpURLConnection conn = WebhookDispatcher.openRaw(webhookUrl);
+            setup.apply(conn);
+            conn.setConnectTimeout((int) remainingMs);
+            conn.setReadTimeout((int) remainingMs);
             conn.setRequestMethod("POST");
             conn.setDoOutput(true);
             conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("User-Agent", "Bastion-TestWebhook-2");
+            conn.setRequestProperty("User-Agent", "Bastion-TestWebhook-" + name.charAt(name.length() - 1));
 
-            String payload = "{\"content\":\"[TEST2] If you see this, Method2 worked.\"}";
+            String payload = "{\"content\":\"[" + name + "] If you see this, Method" + name.charAt(name.length() - 1) + " worked.\"}";
             try (OutputStream os = conn.getOutputStream()) {
                 os.write(payload.getBytes("UTF-8"));
             }
             int response = conn.getResponseCode();
-            log("[Webhook][TEST2] Response code: " + response);
-            conn.getInputStream().close();
-        } catch (Exception e) {
-            log("[Webhook][TEST2][Error] " + e.getMessage());
-        }
-
-        // --- Method 3: Plain URLConnection (trust JVM defaults blindly) ---
-        try {
-            log("[Webhook][TEST3] Plain URLConnection (no SSL override)");
-            URL url = new URL(webhookUrl);
-            java.net.URLConnection conn = url.openConnection(Proxy.NO_PROXY);
-            if (conn instanceof HttpsURLConnection) {
-                HttpsURLConnection https = (HttpsURLConnection) conn;
-                https.setRequestMethod("POST");
-                https.setDoOutput(true);
-                https.setRequestProperty("Content-Type", "application/json");
-                https.setRequestProperty("User-Agent", "Bastion-TestWebhook-3");
-
-                String payload = "{\"content\":\"[TEST3] If you see this, Method3 worked.\"}";
-                try (OutputStream os = https.getOutputStream()) {
-                    os.write(payload.getBytes("UTF-8"));
-                }
-                int response = https.getResponseCode();
-                log("[Webhook][TEST3] Response code: " + response);
-                https.getInputStream().close();
-            }
+            log("[Webhook][" + name + "] Response code: " + response);
+            healthy = response >= 200 && response < 300;
+            detail = "HTTP " + response;
+            conn.disconnect();
         } catch (Exception e) {
-            log("[Webhook][TEST3][Error] " + e.getMessage());
+            log("[Webhook][" + name + "][Error] " + e.getMessage());
+            detail = e.getClass().getSimpleName() + ": " + e.getMessage();
         }
 
-        log("========== End of Webhook Diagnostics ==========");
+        fireHealthProbe(name, healthy, (System.nanoTime() - start) / 1_000_000L, detail);
+        return healthy;
     }
 
+    /** Milliseconds from constructor entry until BastionCore was ready, or -1 while still starting. */
+    public long getStartupMillis() { return startupMillis; }
+
 } // end of part 2
 
 
@@ -14,7 +14,7 @@ public class BastionCoremod implements IFMLLoadingPlugin {
     public BastionCoremod() {
         // Init BastionCore (loads remembered decisions, webhook config, etc.)
         BastionCore core = BastionCore.getInstance();
-        core.sendWebhook("[Bastion] Bastion started.");
+        core.sendWebhook("[Bastion] Bastion started.", BastionCore.Severity.LOW);
 
         // 1. Install URL handler factory (wraps HttpURLConnection)
         try {
@@ -37,11 +37,11 @@ public class BastionCoremod implements IFMLLoadingPlugin {
             LogManager.getLogger("Bastion").warn("SocketImplFactory already set. Bastion may not intercept sockets.");
         }
 
-        // 3. Scan mods directory for suspicious jars
+        // 3. Scan mods directory for suspicious jars (background; results land in BastionCore as they finish)
         try {
-            ModScanner.scanMods();
+            ModScanner.startBackgroundScan();
         } catch (Throwable t) {
-            LogManager.getLogger("Bastion").error("Error scanning mods", t);
+            LogManager.getLogger("Bastion").error("Error starting mod scan", t);
         }
 
         // 4. Init Toast/UI manager
@@ -4,4 +4,7 @@ public interface BastionEventListener {
     void onSuspiciousRequest(String mod, String host, String url, String reason, BastionCore.Severity severity);
     void onDecision(String mod, String host, String url, BastionCore.DecisionState state);
     void onSessionDetected(String mod, String payload, BastionCore.Severity severity);
+
+    /** Result of one startup webhook probe (only when "webhookDiagnostics" is enabled). */
+    default void onHealthProbe(String probe, boolean healthy, long elapsedMillis, String detail) {}
 }
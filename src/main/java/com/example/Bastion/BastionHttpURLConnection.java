@@ -2,18 +2,19 @@ package com.example.bastion;
 
 import java.io.*;
 import java.net.HttpURLConnection;
+import java.net.ProtocolException;
 import java.net.URL;
-import java.util.concurrent.CompletableFuture;
 
 public class BastionHttpURLConnection extends HttpURLConnection {
 
     private final HttpURLConnection delegate;
-    private final String modName;
+    private final InspectionPipeline.Flow flow;
+    private InspectedOutputStream body;
 
     protected BastionHttpURLConnection(HttpURLConnection delegate, String modName) {
         super(delegate.getURL());
         this.delegate = delegate;
-        this.modName = modName;
+        this.flow = InspectionPipeline.HTTP.open(modName, delegate.getURL());
     }
 
     public static BastionHttpURLConnection wrap(HttpURLConnection conn) {
@@ -22,93 +23,82 @@ public class BastionHttpURLConnection extends HttpURLConnection {
 
     @Override
     public void connect() throws IOException {
-        enforceDecision("HTTP → connect");
+        flow.check(flow.action("connect"));
         delegate.connect();
     }
 
+    // Streaming modes: the JDK writes these bodies to the socket as they come, so they are gated
     @Override
-    public OutputStream getOutputStream() throws IOException {
-        enforceDecision("HTTP → output");
-        return new InterceptingOutputStream(delegate.getOutputStream(), modName, delegate.getURL());
+    public void setFixedLengthStreamingMode(int contentLength) {
+        super.setFixedLengthStreamingMode(contentLength);
+        delegate.setFixedLengthStreamingMode(contentLength);
     }
 
     @Override
-    public int getResponseCode() throws IOException {
-        enforceDecision("HTTP → responseCode");
-        return delegate.getResponseCode();
+    public void setFixedLengthStreamingMode(long contentLength) {
+        super.setFixedLengthStreamingMode(contentLength);
+        delegate.setFixedLengthStreamingMode(contentLength);
     }
 
-    @Override public void disconnect() { delegate.disconnect(); }
-    @Override public boolean usingProxy() { return delegate.usingProxy(); }
+    @Override
+    public void setChunkedStreamingMode(int chunklen) {
+        super.setChunkedStreamingMode(chunklen);
+        delegate.setChunkedStreamingMode(chunklen);
+    }
 
-    private void enforceDecision(String reason) throws IOException {
-        BastionCore core = BastionCore.getInstance();
-        URL url = delegate.getURL();
-        String hostKey = BastionCore.normalizeHostPort(
-                url.getHost(),
-                url.getPort() > 0 ? url.getPort() : url.getDefaultPort()
-        );
+    @Override
+    public void setDoOutput(boolean doOutput) {
+        super.setDoOutput(doOutput);
+        delegate.setDoOutput(doOutput);
+    }
 
-        // Request approval asynchronously
-        CompletableFuture<Boolean> future =
-                core.requestApproval(modName, hostKey, url.toString(), reason);
+    @Override
+    public void setRequestMethod(String method) throws ProtocolException {
+        super.setRequestMethod(method);
+        delegate.setRequestMethod(method);
+    }
 
-        try {
-            boolean allowed = core.awaitApproval(modName, hostKey, url.toString(), future);
-            if (!allowed) {
-                throw new IOException("[Bastion] Blocked → " + modName + " → " + url);
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        flow.check(flow.action("output"));
+        if (body == null) {
+            OutputStream out = delegate.getOutputStream();
+            if (fixedContentLengthLong != -1 || fixedContentLength != -1) {
+                body = flow.gatedOutput(out, (fixedContentLengthLong != -1) ? fixedContentLengthLong : fixedContentLength);
+            } else if (chunkLength != -1) {
+                body = flow.gatedOutput(out, -1);
+            } else {
+                // Buffered mode: the JDK holds the whole body until the request is sent; scanned and
+                // logged, but the verdict only gates fixed-length and chunked bodies
+                body = flow.inspect(out);
             }
-        } catch (Exception e) {
-            throw new IOException("[Bastion] Decision error → " + modName + " → " + url, e);
         }
+        return body;
     }
 
+    @Override
+    public int getResponseCode() throws IOException {
+        flow.check(flow.action("responseCode"));
+        finishBody();
+        return delegate.getResponseCode();
+    }
 
-    public static class InterceptingOutputStream extends FilterOutputStream {
-        private final String modName;
-        private final URL url;
-
-        InterceptingOutputStream(OutputStream delegate, String modName, URL url) {
-            super(delegate);
-            this.modName = modName;
-            this.url = url;
-        }
-
-        private void enforce(String action) throws IOException {
-            BastionCore core = BastionCore.getInstance();
-            String hostKey = BastionCore.normalizeHostPort(
-                    url.getHost(),
-                    url.getPort() > 0 ? url.getPort() : url.getDefaultPort()
-            );
-            core.enforceDecision(modName, hostKey, url.toString(), action);
-        }
-
-        @Override
-        public void write(int b) throws IOException {
-            enforce("HTTP → write");
-            super.write(b);
+    // Staged bytes must reach the delegate before it completes the request; a blocked body never does
+    private void finishBody() throws IOException {
+        if (body == null) return;
+        try {
+            body.finish();
+        } catch (IOException e) {
+            delegate.disconnect();
+            throw e;
         }
+    }
 
-        @Override
-        public void write(byte[] b, int off, int len) throws IOException {
-            enforce("HTTP → write");
-            super.write(b, off, len);
-        }
+    @Override public void disconnect() { delegate.disconnect(); }
+    @Override public boolean usingProxy() { return delegate.usingProxy(); }
 
-        @Override
-        public void flush() throws IOException {
-            enforce("HTTP → flush");
-            super.flush();
-        }
-    }
 
     public static String identifyCaller() {
-        for (StackTraceElement el : Thread.currentThread().getStackTrace()) {
-            String cls = el.getClassName();
-            if (cls.startsWith("com.example.bastion")) continue;
-            if (cls.startsWith("java.") || cls.startsWith("sun.") || cls.startsWith("javax.")) continue;
-            return ModCaller.resolveModName(cls);
-        }
-        return "UnknownMod (UnknownFile.jar)";
+        return InspectionPipeline.HTTP.attribute();
     }
 }
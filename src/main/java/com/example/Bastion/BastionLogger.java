@@ -6,13 +6,13 @@ public class BastionLogger {
     public static void info(String msg) {
         String out = PREFIX + msg;
         System.out.println(out);
-        BastionCore.getInstance().sendWebhook(out);
+        BastionCore.getInstance().sendWebhook(out, BastionCore.Severity.LOW);
     }
 
     public static void warn(String msg) {
         String out = PREFIX + "WARNING: " + msg;
         System.out.println(out);
-        BastionCore.getInstance().sendWebhook(out);
+        BastionCore.getInstance().sendWebhook(out, BastionCore.Severity.MEDIUM);
     }
 
     /**
@@ -22,7 +22,7 @@ public class BastionLogger {
     public static void error(String msg) {
         String out = PREFIX + "ERROR: " + msg;
         System.err.println(out);
-        BastionCore.getInstance().sendWebhook(out);
+        BastionCore.getInstance().sendWebhook(out, BastionCore.Severity.CRITICAL);
     }
 
     /**
@@ -38,6 +38,6 @@ public class BastionLogger {
         } else {
             System.err.println(out);
         }
-        BastionCore.getInstance().sendWebhook(out);
+        BastionCore.getInstance().sendWebhook(out, BastionCore.Severity.CRITICAL);
     }
 }
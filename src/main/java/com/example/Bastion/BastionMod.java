@@ -54,17 +54,15 @@ public class BastionMod {
             );
         }
 
-        // Run a mod scan on startup (inventory all JARs)
-        try {
-            ModScanner.scanMods();
-        } catch (Throwable t) {
-            BastionLogger.warn("[Bastion] Mod scan failed: " + t.getMessage());
-        }
+        // The mod scan already runs in the background (started by the coremod); only release its prompts here.
+        // startBackgroundScan() is a no-op if the coremod already started it.
+        ModScanner.startBackgroundScan();
+        ModScanner.onClientReady();
 
         // Startup webhook/log
         BastionCore core = BastionCore.getInstance();
         core.log("[Bastion] Startup complete — monitoring active.");
-        core.sendWebhook("[Bastion] Startup complete. Monitoring outbound requests and session usage.");
+        core.sendWebhook("[Bastion] Startup complete. Monitoring outbound requests and session usage.", BastionCore.Severity.LOW);
 
         // Register prompt retry handler
         GuiSessionPrompt.registerRetryHandler();
@@ -4,11 +4,9 @@ import com.example.bastion.ui.GuiSessionPrompt;
 import com.example.bastion.ui.ToastManager;
 import net.minecraft.client.Minecraft;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -32,11 +30,14 @@ public class BastionNetworkMonitor {
     private static class BastionHttpURLConnection extends HttpURLConnection {
         private final HttpURLConnection delegate;
         private final String modName;
+        private final InspectionPipeline.Flow flow;
+        private InspectedOutputStream body;
 
         protected BastionHttpURLConnection(HttpURLConnection delegate) {
             super(delegate.getURL());
             this.delegate = delegate;
-            this.modName = findCallingMod();
+            this.flow = InspectionPipeline.MONITOR.open(delegate.getURL());
+            this.modName = flow.getModName();
         }
 
         @Override
@@ -45,14 +46,48 @@ public class BastionNetworkMonitor {
             delegate.connect();
         }
 
+        @Override public void setFixedLengthStreamingMode(int contentLength) {
+            super.setFixedLengthStreamingMode(contentLength);
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override public void setFixedLengthStreamingMode(long contentLength) {
+            super.setFixedLengthStreamingMode(contentLength);
+            delegate.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override public void setChunkedStreamingMode(int chunklen) {
+            super.setChunkedStreamingMode(chunklen);
+            delegate.setChunkedStreamingMode(chunklen);
+        }
+
         @Override
         public OutputStream getOutputStream() throws IOException {
-            return new BastionOutputStream(delegate.getOutputStream(), delegate.getURL(), modName);
+            if (body == null) {
+                // Fixed-length and chunked bodies go to the socket as written: hold them until the verdict
+                OutputStream out = delegate.getOutputStream();
+                if (fixedContentLengthLong != -1 || fixedContentLength != -1) {
+                    body = flow.gatedOutput(out, (fixedContentLengthLong != -1) ? fixedContentLengthLong : fixedContentLength);
+                } else if (chunkLength != -1) {
+                    body = flow.gatedOutput(out, -1);
+                } else {
+                    body = flow.inspect(out);
+                }
+            }
+            return body;
         }
 
         @Override
         public int getResponseCode() throws IOException {
             if (!checkConnection()) return 403;
+            if (body != null) {
+                try {
+                    body.finish();
+                } catch (IOException e) {
+                    delegate.disconnect();
+                    throw e;
+                }
+            }
             return delegate.getResponseCode();
         }
 
@@ -99,67 +134,13 @@ public class BastionNetworkMonitor {
                                     BastionCore.DecisionState.DENIED, true))
             );
             ToastManager.addToast("[Bastion] Suspicious connection from " + modName + " → " + target, 0xFFFF55);
-            BastionCore.getInstance().sendWebhook("[Bastion] Suspicious connection from " + modName + " → " + target);
+            BastionCore.getInstance().sendWebhook("[Bastion] Suspicious connection from " + modName + " → " + target, BastionCore.Severity.MEDIUM);
         }
 
         @Override public void disconnect() { delegate.disconnect(); }
         @Override public boolean usingProxy() { return delegate.usingProxy(); }
     }
 
-    private static class BastionOutputStream extends OutputStream {
-        private final OutputStream delegate;
-        private final URL url;
-        private final String modName;
-        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-
-        BastionOutputStream(OutputStream delegate, URL url, String modName) {
-            this.delegate = delegate;
-            this.url = url;
-            this.modName = modName;
-        }
-
-        @Override public void write(int b) throws IOException {
-            buffer.write(b);
-            delegate.write(b);
-        }
-
-        @Override public void write(byte[] b, int off, int len) throws IOException {
-            buffer.write(b, off, len);
-            delegate.write(b, off, len);
-        }
-
-        @Override public void flush() throws IOException { delegate.flush(); }
-
-        @Override public void close() throws IOException {
-            delegate.close();
-            String data = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
-
-            if (looksSensitive(data)) {
-                String msg = "[Bastion] " + modName + " tried sending sensitive data → " + url;
-                ToastManager.addToast(msg, 0xFF5555);
-                BastionCore.getInstance().sendWebhook(msg);
-                Minecraft.getMinecraft().addScheduledTask(() ->
-                        GuiSessionPrompt.open(modName, "sending sensitive data to " + url.getHost())
-                );
-            }
-        }
-
-        private boolean looksSensitive(String data) {
-            if (data == null || data.isEmpty()) return false;
-            String lower = data.toLowerCase(Locale.ROOT);
-            if (lower.contains("session") || lower.contains("token") || lower.contains("uuid")) return true;
-            if (lower.contains("discord.com/api/webhooks") || lower.contains("discordapp.com/api/webhooks")) return true;
-            if (lower.matches(".*[A-Za-z0-9+/=]{40,}.*")) {
-                try {
-                    byte[] decoded = Base64.getDecoder().decode(lower.replaceAll("[^A-Za-z0-9+/=]", ""));
-                    String decodedStr = new String(decoded, StandardCharsets.UTF_8);
-                    if (decodedStr.contains("discord.com/api/webhooks")) return true;
-                } catch (Exception ignored) {}
-            }
-            return false;
-        }
-    }
-
     public static void resolvePending(String modName, BastionCore.DecisionState state, boolean remember) {
         BastionCore core = BastionCore.getInstance();
         if (state == BastionCore.DecisionState.APPROVED) {
@@ -179,13 +160,4 @@ public class BastionNetworkMonitor {
             pending.remove(modName);
         }
     }
-
-    private static String findCallingMod() {
-        for (StackTraceElement el : Thread.currentThread().getStackTrace()) {
-            String cls = el.getClassName();
-            if (cls.startsWith("net.minecraft") || cls.startsWith("java.") || cls.startsWith("sun.")) continue;
-            return cls;
-        }
-        return "Unknown Mod";
-    }
 }
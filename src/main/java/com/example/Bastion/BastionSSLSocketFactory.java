@@ -1,8 +1,5 @@
 package com.example.bastion;
 
-import net.minecraftforge.fml.common.Loader;
-import net.minecraftforge.fml.common.ModContainer;
-
 import javax.net.ssl.*;
 import java.io.*;
 import java.net.*;
@@ -13,7 +10,8 @@ import java.util.concurrent.*;
  * BastionSSLSocketFactory (Paranoid Rewrite)
  * Replaces the default SSLSocketFactory with Bastion enforcement.
  * Bastion’s own webhook traffic is NEVER intercepted.
- * All other SSL sockets are delayed until explicit user approval.
+ * All other SSL sockets are delayed until explicit user approval, and their
+ * plaintext is inspected (InspectionPipeline.SSL) before it is encrypted.
  *
  * This version is intentionally verbose, redundant, and over-engineered
  * to avoid edge-case bugs at the cost of line count.
@@ -30,7 +28,7 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
     // === Main interception hook ===
     private Socket intercept(SSLSocket s, String host, int port) throws IOException {
         BastionCore core = BastionCore.getInstance();
-        core.log("[SSL][DEBUG] Intercepting new socket -> " + host + ":" + port);
+        if (core.isDebugEnabled()) core.debug("[SSL][DEBUG] Intercepting new socket -> " + host + ":" + port);
 
         // 1. Bypass Bastion webhook
         if (isBastionWebhook(core, host, port)) {
@@ -45,9 +43,9 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
         }
 
         // 3. Identify mod responsible
-        String modId = resolveCallerMod();
-        if (modId == null) modId = "unknown-mod";
-        core.log("[SSL][DEBUG] Socket belongs to modId=" + modId);
+        InspectionPipeline.Flow flow = InspectionPipeline.SSL.open(host, port);
+        String modId = flow.getModName();
+        if (core.isDebugEnabled()) core.debug("[SSL][DEBUG] Socket belongs to modId=" + modId);
 
         String reason = "[" + modId + "] [SSL] Socket connect -> " + host + ":" + port;
 
@@ -60,12 +58,14 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
         }
         if (state == BastionCore.DecisionState.APPROVED) {
             core.log("[SSL][ALLOW] Auto-approved by remembered decision -> " + host + ":" + port);
-            return s;
+        } else {
+            // 5. Wait for the decision before the handshake
+            core.log("[SSL][WAIT] No decision yet -> waiting before handshake");
+            awaitApproval(s, flow, reason, core);
         }
 
-        // 5. Guarded socket (buffers writes until decision)
-        core.log("[SSL][WAIT] No decision yet -> Wrapping with GuardedSSLSocket");
-        return new GuardedSSLSocket(s, modId, host, port, reason, core);
+        // 6. Approved either way: plaintext writes go through the SSL inspection pipeline
+        return new GuardedSSLSocket(s, flow);
     }
 
     // === Helper: Bastion webhook detection ===
@@ -101,41 +101,9 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
     }
 
     // === Helper: Detect if call came from Bastion itself ===
+    // Any Bastion frame on the stack (stops at the first one found)
     private boolean isBastionCaller() {
-        for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
-            if (ste.getClassName().startsWith("com.example.bastion")) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    // === Helper: Resolve the mod responsible ===
-    private String resolveCallerMod() {
-        try {
-            for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
-                String clsName = ste.getClassName();
-                if (clsName.startsWith("java.") ||
-                        clsName.startsWith("sun.") ||
-                        clsName.startsWith("com.example.bastion")) continue;
-
-                Class<?> cls = Class.forName(clsName, false,
-                        Thread.currentThread().getContextClassLoader());
-
-                URL location = cls.getProtectionDomain().getCodeSource().getLocation();
-                if (location == null) continue;
-
-                File jar = new File(location.toURI());
-
-                for (ModContainer mod : Loader.instance().getActiveModList()) {
-                    File modFile = mod.getSource();
-                    if (modFile != null && modFile.equals(jar)) {
-                        return mod.getModId();
-                    }
-                }
-            }
-        } catch (Throwable ignored) {}
-        return null;
+        return CallerLocator.get().firstMatch(cls -> cls.startsWith("com.example.bastion")) != null;
     }
 
     // === Delegated methods ===
@@ -158,51 +126,48 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
                 address.getHostAddress(), port);
     }
 
-    // === Guarded SSL socket (buffers until decision) ===
-    private static class GuardedSSLSocket extends SSLSocket {
-        private final SSLSocket delegate;
-        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        private final String host;
-        private final int port;
-        private final BastionCore core;
-        private final String reason;
-
-        private volatile boolean decided = false;
-        private volatile boolean approved = false;
-
-        GuardedSSLSocket(SSLSocket delegate, String modId, String host, int port,
-                         String reason, BastionCore core) throws IOException {
-            this.delegate = delegate;
-            this.host = host;
-            this.port = port;
-            this.core = core;
-            this.reason = reason;
+    // === Approval wait for undecided sockets ===
+    // Blocks until approval synchronously (no async stall), then performs the handshake
+    private static void awaitApproval(SSLSocket s, InspectionPipeline.Flow flow, String reason, BastionCore core) throws IOException {
+        String modId = flow.getModName();
+        String host = flow.getHost();
+        int port = flow.getPort();
+        try {
+            CompletableFuture<Boolean> future = core.requestApproval(modId, host, null, reason);
+            boolean allowed = core.awaitApproval(modId, host, null, future);
 
-            // Block until approval synchronously (no async stall)
-            try {
-                CompletableFuture<Boolean> future = core.requestApproval(modId, host, null, reason);
-                boolean allowed = core.awaitApproval(modId, host, null, future);
+            if (!allowed) {
+                core.log("[SSL][BLOCK] User denied -> closing socket " + host + ":" + port);
+                s.close();
+                throw new IOException("[Bastion] Blocked SSL -> " + modId + " -> " + host + ":" + port);
+            }
 
-                decided = true;
-                approved = allowed;
+            core.log("[SSL][ALLOW] User approved -> performing handshake " + host + ":" + port);
+            s.startHandshake();
 
-                if (!approved) {
-                    core.log("[SSL][BLOCK] User denied -> closing socket " + host + ":" + port);
-                    delegate.close();
-                    throw new IOException("[Bastion] Blocked SSL -> " + modId + " -> " + host + ":" + port);
-                }
+        } catch (Exception e) {
+            core.log("[SSL][ERROR] Approval/handshake failed: " + e.getMessage());
+            try { s.close(); } catch (IOException ignored) {}
+            throw new IOException("[Bastion] SSL approval/handshake failure for " + host + ":" + port, e);
+        }
+    }
 
-                core.log("[SSL][ALLOW] User approved -> performing handshake " + host + ":" + port);
-                delegate.startHandshake();
+    // === Guarded SSL socket (approved; plaintext output through the SSL pipeline) ===
+    // One InspectedOutputStream per socket, so its verdict is latched for the socket's lifetime
+    private static class GuardedSSLSocket extends SSLSocket {
+        private final SSLSocket delegate;
+        private final InspectionPipeline.Flow flow;
+        private OutputStream out;
 
-            } catch (Exception e) {
-                core.log("[SSL][ERROR] Approval/handshake failed: " + e.getMessage());
-                try { delegate.close(); } catch (IOException ignored) {}
-                throw new IOException("[Bastion] SSL approval/handshake failure for " + host + ":" + port, e);
-            }
+        GuardedSSLSocket(SSLSocket delegate, InspectionPipeline.Flow flow) {
+            this.delegate = delegate;
+            this.flow = flow;
         }
 
-        @Override public OutputStream getOutputStream() throws IOException { return delegate.getOutputStream(); }
+        @Override public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) out = flow.output(delegate.getOutputStream());
+            return out;
+        }
         @Override public InputStream getInputStream() throws IOException { return delegate.getInputStream(); }
 
         // === Full delegate for all SSLSocket methods ===
@@ -222,6 +187,9 @@ public class BastionSSLSocketFactory extends SSLSocketFactory {
         @Override public String[] getEnabledProtocols() { return delegate.getEnabledProtocols(); }
         @Override public void setEnabledProtocols(String[] protocols) { delegate.setEnabledProtocols(protocols); }
         @Override public SSLSession getSession() { return delegate.getSession(); }
+        @Override public SSLSession getHandshakeSession() { return delegate.getHandshakeSession(); }
+        @Override public SSLParameters getSSLParameters() { return delegate.getSSLParameters(); }
+        @Override public void setSSLParameters(SSLParameters params) { delegate.setSSLParameters(params); }
         @Override public void addHandshakeCompletedListener(HandshakeCompletedListener l) { delegate.addHandshakeCompletedListener(l); }
         @Override public void removeHandshakeCompletedListener(HandshakeCompletedListener l) { delegate.removeHandshakeCompletedListener(l); }
         @Override public void close() throws IOException { delegate.close(); }
@@ -1,9 +1,10 @@
 package com.example.bastion;
 
-import net.minecraftforge.fml.common.Loader;
-import net.minecraftforge.fml.common.ModContainer;
-
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.net.*;
 import java.util.concurrent.*;
@@ -17,6 +18,8 @@ import java.util.concurrent.*;
  *  - Urgent-data buffering
  *  - Self-webhook bypass
  *  - Fallback if PlainSocketImpl missing
+ *  - Delegate methods resolved once per SocketImpl class (no per-call reflection)
+ *  - Bounded pre-decision staging; approved sockets write straight to the real stream
  */
 public class BastionSocketFactory implements SocketImplFactory {
 
@@ -29,11 +32,19 @@ public class BastionSocketFactory implements SocketImplFactory {
 
         private final SocketImpl realImpl;
         private final Class<?> realClass;
+        private final Delegates delegates;
 
         private String remoteHost;
         private int remotePort;
-
-        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private String callerMod;
+        private InspectionPipeline.Flow flow;   // set by queueApproval; null for bypassed connects
+
+        // Pre-decision bytes, guarded by stageLock. Once approved and drained, passThrough
+        // is set and every later write goes to it directly: no lock, no copy, no reflection.
+        private final Object stageLock = new Object();
+        private StagingBuffer staging;
+        private volatile OutputStream passThrough;
+        private OutputStream guardedOut;
         private volatile boolean decided = false;
         private volatile boolean approved = false;
 
@@ -46,52 +57,132 @@ public class BastionSocketFactory implements SocketImplFactory {
                     clazz = Class.forName("java.net.SocksSocketImpl"); // fallback
                 }
                 this.realClass = clazz;
-                this.realImpl = (SocketImpl) realClass.getDeclaredConstructor().newInstance();
+                Constructor<?> ctor = realClass.getDeclaredConstructor();
+                ctor.setAccessible(true);
+                this.realImpl = (SocketImpl) ctor.newInstance();
+                this.delegates = DELEGATES.get(realClass);
             } catch (Throwable t) {
                 throw new RuntimeException("Failed to obtain default SocketImpl", t);
             }
         }
 
-        // === Reflection helper ===
-        private Object invoke(String name, Class<?>[] types, Object... args) throws IOException {
+        // === Delegate table ===
+        // One MethodHandle per overridden method, looked up through the class hierarchy
+        // (most of them live on AbstractPlainSocketImpl) and adapted to an exact
+        // (SocketImpl, ...) type, so calls are invokeExact with no boxing or varargs arrays.
+        private static final ClassValue<Delegates> DELEGATES = new ClassValue<Delegates>() {
+            @Override protected Delegates computeValue(Class<?> type) {
+                return new Delegates(type);
+            }
+        };
+
+        private static final class Delegates {
+            final MethodHandle create, connectHost, connectSocketAddress;
+            final MethodHandle bind, listen, accept, getInputStream, getOutputStream;
+            final MethodHandle available, close, setOption, getOption;
+
+            Delegates(Class<?> c) {
+                create               = resolve(c, "create", void.class, boolean.class);
+                connectHost          = resolve(c, "connect", void.class, String.class, int.class);
+                connectSocketAddress = resolve(c, "connect", void.class, SocketAddress.class, int.class);
+                bind                 = resolve(c, "bind", void.class, InetAddress.class, int.class);
+                listen               = resolve(c, "listen", void.class, int.class);
+                accept               = resolve(c, "accept", void.class, SocketImpl.class);
+                getInputStream       = resolve(c, "getInputStream", InputStream.class);
+                getOutputStream      = resolve(c, "getOutputStream", OutputStream.class);
+                available            = resolve(c, "available", int.class);
+                close                = resolve(c, "close", void.class);
+                setOption            = resolve(c, "setOption", void.class, int.class, Object.class);
+                getOption            = resolve(c, "getOption", Object.class, int.class);
+            }
+
+            private static MethodHandle resolve(Class<?> c, String name, Class<?> ret, Class<?>... params) {
+                for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                    try {
+                        Method m = k.getDeclaredMethod(name, params);
+                        m.setAccessible(true);
+                        return MethodHandles.lookup().unreflect(m)
+                                .asType(MethodType.methodType(ret, SocketImpl.class).appendParameterTypes(params));
+                    } catch (NoSuchMethodException ignored) {
+                        // keep walking up
+                    } catch (Throwable t) {
+                        break;
+                    }
+                }
+                // Surfaces as an IOException on first use instead of failing socket creation
+                return MethodHandles.dropArguments(
+                        MethodHandles.insertArguments(MISSING, 0, c.getName() + "." + name)
+                                .asType(MethodType.methodType(ret)),
+                        0, MethodType.methodType(ret, SocketImpl.class).appendParameterTypes(params).parameterList());
+            }
+        }
+
+        private static final MethodHandle MISSING;
+        static {
             try {
-                Method m = realClass.getDeclaredMethod(name, types);
-                m.setAccessible(true);
-                return m.invoke(realImpl, args);
-            } catch (Throwable t) {
-                if (t instanceof IOException) throw (IOException) t;
-                throw new IOException("Reflection call failed: " + name, t);
+                MISSING = MethodHandles.lookup().findStatic(InterceptingSocketImpl.class, "missingDelegate",
+                        MethodType.methodType(void.class, String.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
             }
         }
 
+        private static void missingDelegate(String name) throws IOException {
+            throw new IOException("Reflection call failed: " + name + " not found");
+        }
+
+        private static IOException rethrow(String name, Throwable t) {
+            if (t instanceof IOException) return (IOException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            return new IOException("Reflection call failed: " + name, t);
+        }
+
+        private void realConnect(SocketAddress address, int timeout) throws IOException {
+            try { delegates.connectSocketAddress.invokeExact(realImpl, address, timeout); }
+            catch (Throwable t) { throw rethrow("connect", t); }
+        }
+
+        private void realClose() throws IOException {
+            try { delegates.close.invokeExact(realImpl); }
+            catch (Throwable t) { throw rethrow("close", t); }
+        }
+
+        private OutputStream realOutputStream() throws IOException {
+            try { return (OutputStream) delegates.getOutputStream.invokeExact(realImpl); }
+            catch (Throwable t) { throw rethrow("getOutputStream", t); }
+        }
+
         // === Approval pipeline ===
         private void queueApproval(InetSocketAddress target, String action) throws IOException {
             this.remoteHost = target.getHostName();
             this.remotePort = target.getPort();
 
             BastionCore core = BastionCore.getInstance();
-            final String fMod = resolveCallerMod() != null ? resolveCallerMod() : "unknown-mod";
+            this.flow = InspectionPipeline.SOCKET.open(remoteHost, remotePort);
+            final String fMod = flow.getModName();
+            this.callerMod = fMod;
             final String fHost = this.remoteHost;
             final int fPort = this.remotePort;
 
             String hostKey = fHost + ":" + fPort;
             String reason = "[" + fMod + "] " + action + " -> " + hostKey;
 
-            core.log("[DEBUG][SocketFactory] Request -> Mod=" + fMod + " Host=" + fHost + " Port=" + fPort);
+            if (core.isDebugEnabled()) core.debug("[DEBUG][SocketFactory] Request -> Mod=" + fMod + " Host=" + fHost + " Port=" + fPort);
 
             BastionCore.DecisionState state = core.queryDecision(fMod, hostKey, null);
-            core.log("[DEBUG][SocketFactory] Decision lookup -> state=" + state + " for key=" + hostKey);
+            if (core.isDebugEnabled()) core.debug("[DEBUG][SocketFactory] Decision lookup -> state=" + state + " for key=" + hostKey);
 
             if (state == BastionCore.DecisionState.APPROVED) {
                 decided = true;
                 approved = true;
-                invoke("connect", new Class[]{SocketAddress.class, int.class}, target, 0);
+                realConnect(target, 0);
                 return;
             }
             if (state == BastionCore.DecisionState.DENIED) {
                 decided = true;
                 approved = false;
-                try { invoke("close", new Class[]{}); } catch (IOException ignore) {}
+                try { realClose(); } catch (IOException ignore) {}
                 throw new IOException("[Bastion] Blocked -> " + fMod + " -> " + hostKey);
             }
 
@@ -109,59 +200,50 @@ public class BastionSocketFactory implements SocketImplFactory {
 
             if (approved) {
                 try {
-                    invoke("connect", new Class[]{SocketAddress.class, int.class}, target, 0);
+                    realConnect(target, 0);
                 } catch (IOException e) {
                     throw new IOException("[Bastion] Failed to complete connect for " + fMod + " -> " + hostKey, e);
                 }
             } else {
-                try { invoke("close", new Class[]{}); } catch (IOException ignore) {}
+                try { realClose(); } catch (IOException ignore) {}
                 core.cancelPending(fMod, fHost, null);
                 throw new IOException("[Bastion] Blocked -> " + fMod + " -> " + hostKey);
             }
         }
 
-        private void flushBuffer() throws IOException {
-            synchronized (buffer) {
-                if (buffer.size() > 0) {
-                    OutputStream os = (OutputStream) invoke("getOutputStream", new Class[]{});
-                    os.write(buffer.toByteArray());
-                    os.flush();
-                    buffer.reset();
+        /**
+         * Stream for the next write: passThrough once approved, null while undecided.
+         * Switching drains staged bytes to the real stream first, exactly once. The real stream
+         * goes through the SOCKET pipeline's output(), which returns it as-is while that has no stages.
+         */
+        private OutputStream approvedStream() throws IOException {
+            OutputStream out = passThrough;
+            if (out != null) return out;
+            synchronized (stageLock) {
+                if (passThrough != null) return passThrough;
+                if (!decided) return null;
+                if (!approved) throw new IOException("[Bastion] Outbound denied -> " + remoteHost + ":" + remotePort);
+                out = realOutputStream();
+                if (flow != null) out = flow.output(out);
+                if (staging != null) {
+                    staging.drainTo(out);
+                    staging = null;
                 }
+                passThrough = out;
+                return out;
             }
         }
 
-        /** Match caller mod */
-        private String resolveCallerMod() {
-            try {
-                for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
-                    String clsName = ste.getClassName();
-                    if (clsName.startsWith("java.") ||
-                            clsName.startsWith("sun.") ||
-                            clsName.startsWith("com.example.bastion")) continue;
-
-                    Class<?> cls = Class.forName(clsName, false,
-                            Thread.currentThread().getContextClassLoader());
-
-                    URL location = cls.getProtectionDomain().getCodeSource().getLocation();
-                    if (location == null) continue;
-
-                    File jar = new File(location.toURI());
-
-                    for (ModContainer mod : Loader.instance().getActiveModList()) {
-                        File modFile = mod.getSource();
-                        if (modFile != null && modFile.equals(jar)) {
-                            return mod.getModId();
-                        }
-                    }
-                }
-            } catch (Throwable ignored) {}
-            return null;
+        // Created on first staged write; caller holds stageLock
+        private StagingBuffer staging() {
+            if (staging == null) staging = new StagingBuffer(BastionCore.getInstance().getStagingBufferCapBytes());
+            return staging;
         }
 
         // === Overridden SocketImpl methods ===
         @Override protected void create(boolean stream) throws IOException {
-            invoke("create", new Class[]{boolean.class}, stream);
+            try { delegates.create.invokeExact(realImpl, stream); }
+            catch (Throwable t) { throw rethrow("create", t); }
         }
 
         // --- connect overloads with self-webhook bypass ---
@@ -181,7 +263,7 @@ public class BastionSocketFactory implements SocketImplFactory {
                 if (checkSelfWebhookBypass(isa.getHostName(), isa.getPort())) return;
                 queueApproval(isa, "Socket connect");
             } else {
-                invoke("connect", new Class[]{SocketAddress.class, int.class}, address, timeout);
+                realConnect(address, timeout);
             }
         }
 
@@ -193,7 +275,10 @@ public class BastionSocketFactory implements SocketImplFactory {
                     URL cfg = new URL(webhook);
                     if (host.equalsIgnoreCase(cfg.getHost())) {
                         core.log("[SocketFactory] Self-webhook bypass → " + host + ":" + port);
-                        invoke("connect", new Class[]{String.class, int.class}, host, port);
+                        try { delegates.connectHost.invokeExact(realImpl, host, port); }
+                        catch (Throwable t) { throw rethrow("connect", t); }
+                        decided = true;
+                        approved = true;
                         return true;
                     }
                 }
@@ -203,52 +288,103 @@ public class BastionSocketFactory implements SocketImplFactory {
 
         // --- I/O handling ---
         @Override protected InputStream getInputStream() throws IOException {
-            return (InputStream) invoke("getInputStream", new Class[]{});
+            try { return (InputStream) delegates.getInputStream.invokeExact(realImpl); }
+            catch (Throwable t) { throw rethrow("getInputStream", t); }
         }
         @Override protected OutputStream getOutputStream() throws IOException {
-            OutputStream realOut = (OutputStream) invoke("getOutputStream", new Class[]{});
-            return new OutputStream() {
-                @Override public void write(int b) throws IOException {
-                    synchronized (buffer) {
-                        if (!decided) buffer.write(b);
-                        else if (approved) { flushBuffer(); realOut.write(b); }
-                        else throw new IOException("[Bastion] Outbound denied -> " + remoteHost + ":" + remotePort);
+            OutputStream out = passThrough;
+            if (out != null) return out;
+            synchronized (stageLock) {
+                if (guardedOut == null) guardedOut = new GuardedOutputStream();
+                return guardedOut;
+            }
+        }
+
+        /** Stages writes until the decision, then forwards to the pass-through stream. */
+        private final class GuardedOutputStream extends OutputStream {
+            @Override public void write(int b) throws IOException {
+                OutputStream out = passThrough;
+                if (out == null) {
+                    synchronized (stageLock) {
+                        out = approvedStream();
+                        if (out == null) { staging().write(b); return; }
                     }
                 }
-                @Override public void write(byte[] b, int off, int len) throws IOException {
-                    synchronized (buffer) {
-                        if (!decided) buffer.write(b, off, len);
-                        else if (approved) { flushBuffer(); realOut.write(b, off, len); }
-                        else throw new IOException("[Bastion] Outbound denied -> " + remoteHost + ":" + remotePort);
+                out.write(b);
+            }
+            @Override public void write(byte[] b, int off, int len) throws IOException {
+                OutputStream out = passThrough;
+                if (out == null) {
+                    synchronized (stageLock) {
+                        out = approvedStream();
+                        if (out == null) { staging().write(b, off, len); return; }
                     }
                 }
-                @Override public void flush() throws IOException { realOut.flush(); }
-                @Override public void close() throws IOException { realOut.close(); }
-            };
+                out.write(b, off, len);
+            }
+            @Override public void flush() throws IOException {
+                OutputStream out = approvedStream();
+                if (out != null) out.flush();
+            }
+            @Override public void close() throws IOException {
+                OutputStream out = passThrough;
+                if (out != null) out.close();
+                else realOutputStream().close();
+            }
         }
 
         // --- Lifecycle / cleanup ---
         @Override protected void close() throws IOException {
-            try { invoke("close", new Class[]{}); }
+            try { realClose(); }
             finally {
-                BastionCore.getInstance().cancelPending(resolveCallerMod(), remoteHost, null);
+                BastionCore.getInstance().cancelPending(callerMod, remoteHost, null);
             }
         }
 
         @Override protected void sendUrgentData(int data) throws IOException {
-            synchronized (buffer) {
-                if (!decided) buffer.write(data);
-                else if (approved) { flushBuffer(); ((OutputStream) invoke("getOutputStream", new Class[]{})).write(data); }
-                else throw new IOException("[Bastion] Urgent data denied → " + remoteHost + ":" + remotePort);
+            OutputStream out = passThrough;
+            if (out == null) {
+                synchronized (stageLock) {
+                    if (decided && !approved) throw new IOException("[Bastion] Urgent data denied → " + remoteHost + ":" + remotePort);
+                    out = approvedStream();
+                    if (out == null) { staging().write(data); return; }
+                }
             }
+            out.write(data);
         }
 
         // --- Other pass-throughs ---
-        @Override protected void bind(InetAddress host, int port) throws IOException { invoke("bind", new Class[]{InetAddress.class, int.class}, host, port); }
-        @Override protected void listen(int backlog) throws IOException { invoke("listen", new Class[]{int.class}, backlog); }
-        @Override protected void accept(SocketImpl s) throws IOException { invoke("accept", new Class[]{SocketImpl.class}, s); }
-        @Override protected int available() throws IOException { return (int) invoke("available", new Class[]{}); }
-        @Override public void setOption(int optID, Object value) throws SocketException { try { invoke("setOption", new Class[]{int.class, Object.class}, optID, value); } catch (IOException e) { throw new SocketException(e.getMessage()); } }
-        @Override public Object getOption(int optID) throws SocketException { try { return invoke("getOption", new Class[]{int.class}, optID); } catch (IOException e) { throw new SocketException(e.getMessage()); } }
+        @Override protected void bind(InetAddress host, int port) throws IOException {
+            try { delegates.bind.invokeExact(realImpl, host, port); }
+            catch (Throwable t) { throw rethrow("bind", t); }
+        }
+        @Override protected void listen(int backlog) throws IOException {
+            try { delegates.listen.invokeExact(realImpl, backlog); }
+            catch (Throwable t) { throw rethrow("listen", t); }
+        }
+        @Override protected void accept(SocketImpl s) throws IOException {
+            try { delegates.accept.invokeExact(realImpl, s); }
+            catch (Throwable t) { throw rethrow("accept", t); }
+        }
+        @Override protected int available() throws IOException {
+            try { return (int) delegates.available.invokeExact(realImpl); }
+            catch (Throwable t) { throw rethrow("available", t); }
+        }
+        @Override public void setOption(int optID, Object value) throws SocketException {
+            try { delegates.setOption.invokeExact(realImpl, optID, value); }
+            catch (Throwable t) { throw asSocketException("setOption", t); }
+        }
+        @Override public Object getOption(int optID) throws SocketException {
+            try { return (Object) delegates.getOption.invokeExact(realImpl, optID); }
+            catch (Throwable t) { throw asSocketException("getOption", t); }
+        }
+
+        private static SocketException asSocketException(String name, Throwable t) {
+            if (t instanceof SocketException) return (SocketException) t;
+            IOException io = rethrow(name, t);
+            SocketException se = new SocketException(io.getMessage());
+            se.initCause(io);
+            return se;
+        }
     }
 }
@@ -0,0 +1,124 @@
+package com.example.bastion;
+
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.ModContainer;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CallerAttributionCache
+ * - Maps class name -> owning modId and CodeSource location -> modId, filled lazily, never evicted.
+ * - Also memoizes ModCaller's display name ("file.jar [declares ...]") per class.
+ * - Attributing a caller costs a partial stack walk (CallerLocator) plus hash lookups once the
+ *   classes have been seen.
+ * - Nothing is cached while Forge's mod list is still empty (coremod phase), so early
+ *   misses don't stick for the rest of the session.
+ */
+public final class CallerAttributionCache {
+
+    // Cached "not a mod" marker (ConcurrentHashMap can't hold null)
+    private static final String NONE = "";
+
+    private static final Map<String, String> modIdByClass = new ConcurrentHashMap<>();
+    private static final Map<String, String> modIdBySource = new ConcurrentHashMap<>();
+    private static final Map<String, String> displayNameByClass = new ConcurrentHashMap<>();
+
+    // Mod jar -> modId, built once Forge has an active mod list
+    private static volatile Map<File, String> modIdByFile;
+
+    private CallerAttributionCache() {}
+
+    // === Stack attribution ===
+
+    /** modId of the first mod class on the current stack, or null. */
+    public static String callerModId() {
+        String cls = CallerLocator.get().firstMatch(c -> !CallerLocator.isPlatformOrSelf(c) && modIdFor(c) != null);
+        return (cls != null) ? modIdFor(cls) : null;
+    }
+
+    /** ModCaller-style name for the first non-platform class on the stack. */
+    public static String callerDisplayName() {
+        String cls = CallerLocator.get().firstMatch(CallerLocator.EXTERNAL);
+        return (cls != null) ? displayNameFor(cls) : "UnknownMod (UnknownFile.jar)";
+    }
+
+    // === Lookups ===
+
+    /** modId owning the class, or null if it doesn't come from a mod jar. */
+    public static String modIdFor(String className) {
+        String id = modIdByClass.get(className);
+        if (id != null) return id == NONE ? null : id;
+
+        URL location = locationOf(className);
+        id = (location != null) ? modIdForSource(location) : null;
+        if (modsReady()) modIdByClass.put(className, id != null ? id : NONE);
+        return id;
+    }
+
+    /** modId whose jar is at the given CodeSource location, or null. */
+    public static String modIdForSource(URL location) {
+        String key = location.toString();
+        String id = modIdBySource.get(key);
+        if (id != null) return id == NONE ? null : id;
+
+        Map<File, String> files = modFiles();
+        if (files.isEmpty()) return null;
+        try {
+            id = files.get(new File(location.toURI()));
+        } catch (Exception ignored) {
+            id = null;
+        }
+        modIdBySource.put(key, id != null ? id : NONE);
+        return id;
+    }
+
+    /** Memoized {@link ModCaller#resolveModName(String)}. */
+    public static String displayNameFor(String className) {
+        String name = displayNameByClass.get(className);
+        if (name != null) return name;
+
+        name = ModCaller.describe(className);
+        if (modsReady()) displayNameByClass.put(className, name);
+        return name;
+    }
+
+    public static int size() {
+        return modIdByClass.size() + modIdBySource.size() + displayNameByClass.size();
+    }
+
+    // === Internals ===
+
+    private static URL locationOf(String className) {
+        try {
+            Class<?> cls = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+            return cls.getProtectionDomain().getCodeSource().getLocation();
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private static boolean modsReady() {
+        return !modFiles().isEmpty();
+    }
+
+    private static Map<File, String> modFiles() {
+        Map<File, String> files = modIdByFile;
+        if (files != null) return files;
+
+        Map<File, String> built = new HashMap<>();
+        try {
+            for (ModContainer mod : Loader.instance().getActiveModList()) {
+                File source = mod.getSource();
+                if (source != null && !built.containsKey(source)) built.put(source, mod.getModId());
+            }
+        } catch (Throwable ignored) {}
+
+        if (built.isEmpty()) return built; // not ready yet, try again next time
+        modIdByFile = built;
+        return built;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.bastion;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * CallerLocator
+ * - Finds the first class on the current stack that a filter accepts, stopping at that frame.
+ * - StackWalker (Java 9+) when present: only the frames actually visited are materialized.
+ * - Java 8: JavaLangAccess reads single frames out of a Throwable by index, so no
+ *   StackTraceElement[] is built for the whole stack.
+ * - Last resort: Throwable.getStackTrace().
+ * - The active strategy is picked once at startup and can be replaced with set().
+ */
+public abstract class CallerLocator {
+
+    /** Any class outside the JDK and outside Bastion. */
+    public static final Predicate<String> EXTERNAL = cls -> !isPlatformOrSelf(cls);
+
+    private static final String LOCATOR_PREFIX = CallerLocator.class.getName();
+
+    private static volatile CallerLocator active = detect();
+
+    public static CallerLocator get() {
+        return active;
+    }
+
+    public static void set(CallerLocator locator) {
+        active = (locator != null) ? locator : detect();
+    }
+
+    /**
+     * Class name of the first (innermost) frame accepted by the filter, or null.
+     * Frames of the locator itself are never offered.
+     */
+    public abstract String firstMatch(Predicate<String> accept);
+
+    public abstract String name();
+
+    static boolean isPlatformOrSelf(String cls) {
+        return cls.startsWith("com.example.bastion")
+                || cls.startsWith("java.") || cls.startsWith("javax.") || cls.startsWith("sun.");
+    }
+
+    private static CallerLocator detect() {
+        try {
+            return new StackWalkerLocator();
+        } catch (Throwable ignored) {}
+        try {
+            return new JavaLangAccessLocator();
+        } catch (Throwable ignored) {}
+        return new FullTraceLocator();
+    }
+
+    // === Java 9+: java.lang.StackWalker (looked up reflectively, we compile for 8) ===
+    static final class StackWalkerLocator extends CallerLocator {
+        private final Object walker;
+        private final MethodHandle walk;          // (Object walker, Function)Object
+        private final MethodHandle getClassName;  // (Object frame)String
+
+        StackWalkerLocator() throws Exception {
+            Class<?> sw = Class.forName("java.lang.StackWalker");
+            Class<?> frame = Class.forName("java.lang.StackWalker$StackFrame");
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            walker = sw.getMethod("getInstance").invoke(null);
+            walk = lookup.unreflect(sw.getMethod("walk", Function.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, Function.class));
+            getClassName = lookup.unreflect(frame.getMethod("getClassName"))
+                    .asType(MethodType.methodType(String.class, Object.class));
+        }
+
+        @Override
+        public String firstMatch(Predicate<String> accept) {
+            Function<Stream<Object>, String> fn = frames -> frames
+                    .map(this::className)
+                    .filter(cls -> !cls.startsWith(LOCATOR_PREFIX) && accept.test(cls))
+                    .findFirst()
+                    .orElse(null);
+            try {
+                Object cls = walk.invokeExact(walker, (Function) fn);
+                return (String) cls;
+            } catch (Throwable t) {
+                return FullTraceLocator.scan(new Throwable().getStackTrace(), accept);
+            }
+        }
+
+        private String className(Object frame) {
+            try {
+                return (String) getClassName.invokeExact(frame);
+            } catch (Throwable t) {
+                return "";
+            }
+        }
+
+        @Override public String name() { return "StackWalker"; }
+    }
+
+    // === Java 8: sun.misc.JavaLangAccess, one frame at a time ===
+    static final class JavaLangAccessLocator extends CallerLocator {
+        private final Object access;
+        private final MethodHandle depth;    // (Object access, Throwable)int
+        private final MethodHandle element;  // (Object access, Throwable, int)StackTraceElement
+
+        JavaLangAccessLocator() throws Exception {
+            Class<?> secrets = Class.forName("sun.misc.SharedSecrets");
+            Class<?> jla = Class.forName("sun.misc.JavaLangAccess");
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            access = secrets.getMethod("getJavaLangAccess").invoke(null);
+            depth = lookup.unreflect(jla.getMethod("getStackTraceDepth", Throwable.class))
+                    .asType(MethodType.methodType(int.class, Object.class, Throwable.class));
+            element = lookup.unreflect(jla.getMethod("getStackTraceElement", Throwable.class, int.class))
+                    .asType(MethodType.methodType(StackTraceElement.class, Object.class, Throwable.class, int.class));
+        }
+
+        @Override
+        public String firstMatch(Predicate<String> accept) {
+            Throwable here = new Throwable();
+            try {
+                int n = (int) depth.invokeExact(access, here);
+                for (int i = 1; i < n; i++) { // frame 0 is this method
+                    StackTraceElement ste = (StackTraceElement) element.invokeExact(access, here, i);
+                    String cls = ste.getClassName();
+                    if (!cls.startsWith(LOCATOR_PREFIX) && accept.test(cls)) return cls;
+                }
+                return null;
+            } catch (Throwable t) {
+                return FullTraceLocator.scan(here.getStackTrace(), accept);
+            }
+        }
+
+        @Override public String name() { return "JavaLangAccess"; }
+    }
+
+    // === Fallback: full StackTraceElement[] ===
+    static final class FullTraceLocator extends CallerLocator {
+        @Override
+        public String firstMatch(Predicate<String> accept) {
+            return scan(new Throwable().getStackTrace(), accept);
+        }
+
+        static String scan(StackTraceElement[] trace, Predicate<String> accept) {
+            for (StackTraceElement ste : trace) {
+                String cls = ste.getClassName();
+                if (!cls.startsWith(LOCATOR_PREFIX) && accept.test(cls)) return cls;
+            }
+            return null;
+        }
+
+        @Override public String name() { return "StackTrace"; }
+    }
+}
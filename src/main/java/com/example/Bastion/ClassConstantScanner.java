@@ -0,0 +1,271 @@
+package com.example.bastion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * ClassConstantScanner
+ * - Reads a .class stream only as far as the end of its constant pool; fields, methods and
+ *   attributes are never read (or inflated, for zip entries).
+ * - Every CONSTANT_Utf8 payload (String constants, names, descriptors) is matched with IndicatorMatcher.
+ * - String literals are also fed, in pool order, to one cursor that is not reset between them, so an
+ *   indicator split across literals ("discord.com/api/web" + x + "hooks") still matches. javac emits a
+ *   literal's Utf8 right after its String entry; invokedynamic concat recipes have their \1 / \2
+ *   argument placeholders skipped.
+ * - Class / Fieldref / Methodref / InterfaceMethodref owners are resolved against a short list of
+ *   network and session classes after the pool is read.
+ * - One instance per scanning thread; buffers are reused across classes.
+ */
+public final class ClassConstantScanner {
+
+    // === Referenced owners ===
+    public static final int OWNER_NETWORK = 1;
+    public static final int OWNER_SESSION = 2;
+
+    private static final byte[][] OWNER_NAMES;
+    private static final int[] OWNER_KINDS;
+
+    static {
+        String[] network = {
+                "java/net/HttpURLConnection", "javax/net/ssl/HttpsURLConnection", "java/net/URLConnection",
+                "java/net/Socket", "javax/net/ssl/SSLSocket", "java/net/http/HttpClient",
+                "org/apache/http/client/HttpClient", "org/apache/http/impl/client/CloseableHttpClient"
+        };
+        String[] session = { "net/minecraft/util/Session" };
+        OWNER_NAMES = new byte[network.length + session.length][];
+        OWNER_KINDS = new int[OWNER_NAMES.length];
+        int i = 0;
+        for (String s : network) { OWNER_NAMES[i] = s.getBytes(StandardCharsets.ISO_8859_1); OWNER_KINDS[i++] = OWNER_NETWORK; }
+        for (String s : session) { OWNER_NAMES[i] = s.getBytes(StandardCharsets.ISO_8859_1); OWNER_KINDS[i++] = OWNER_SESSION; }
+    }
+
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+    // Constant pool tags
+    private static final int UTF8 = 1, INTEGER = 3, FLOAT = 4, LONG = 5, DOUBLE = 6, CLASS = 7, STRING = 8,
+            FIELDREF = 9, METHODREF = 10, INTERFACE_METHODREF = 11, NAME_AND_TYPE = 12, METHOD_HANDLE = 15,
+            METHOD_TYPE = 16, DYNAMIC = 17, INVOKE_DYNAMIC = 18, MODULE = 19, PACKAGE = 20;
+
+    private final IndicatorMatcher.Cursor literals = IndicatorMatcher.DEFAULT.cursor();
+    private final IndicatorMatcher.TokenProbe probe = new IndicatorMatcher.TokenProbe();
+
+    // Input window
+    private InputStream in;
+    private final byte[] window = new byte[8192];
+    private int pos, limit;
+    private long bytesRead;
+
+    // Pool bookkeeping, grown on demand
+    private byte[] utf = new byte[1024];
+    private int[] utf8Owner = new int[256];    // utf8 index -> OWNER_* (0 = none)
+    private int[] classNameIndex = new int[256];
+    private boolean[] referenced = new boolean[256];
+    private boolean[] literal = new boolean[256];   // utf8 index is the target of a String entry seen so far
+
+    // Result of the last scan
+    private long hits;
+    private boolean token;
+    private int owners;
+
+    // === Scanning ===
+
+    /**
+     * Scan one class file's constant pool.
+     * @return false if the stream is not a class file (nothing is consumed past the header)
+     * @throws IOException on a read error or a truncated / malformed pool
+     */
+    public boolean scan(InputStream is) throws IOException {
+        begin();
+        in = is;
+        pos = limit = 0;
+        try {
+            if (!fill(10) || u4() != CLASS_MAGIC) return false;
+            u2(); // minor
+            u2(); // major
+            int count = u2();
+            ensurePool(count);
+
+            for (int i = 1; i < count; i++) {
+                int tag = u1();
+                switch (tag) {
+                    case UTF8: {
+                        int len = u2();
+                        utf8(i, len);
+                        break;
+                    }
+                    case CLASS:
+                        classNameIndex[i] = u2();
+                        break;
+                    case FIELDREF: case METHODREF: case INTERFACE_METHODREF: {
+                        int owner = u2();
+                        u2(); // name_and_type
+                        if (owner > 0 && owner < count) referenced[owner] = true;
+                        break;
+                    }
+                    case STRING: {
+                        int target = u2();
+                        if (target > 0 && target < count) literal[target] = true;
+                        break;
+                    }
+                    case METHOD_TYPE: case MODULE: case PACKAGE:
+                        skip(2);
+                        break;
+                    case METHOD_HANDLE:
+                        skip(3);
+                        break;
+                    case INTEGER: case FLOAT: case NAME_AND_TYPE: case DYNAMIC: case INVOKE_DYNAMIC:
+                        skip(4);
+                        break;
+                    case LONG: case DOUBLE:
+                        skip(8);
+                        i++; // takes two slots
+                        break;
+                    default:
+                        throw new IOException("bad constant pool tag " + tag + " at #" + i);
+                }
+            }
+
+            // Owners: the Class entry must be used by a member ref, and its name must be a watched class
+            for (int i = 1; i < count; i++) {
+                if (!referenced[i]) continue;
+                int name = classNameIndex[i];
+                if (name > 0 && name < count) owners |= utf8Owner[name];
+            }
+            return true;
+        } finally {
+            in = null;
+        }
+    }
+
+    /** Fallback for entries that aren't class files: one flat pass over the bytes. */
+    public void scanFlat(byte[] b, int off, int len) {
+        begin();
+        bytesRead = len;
+        hits = IndicatorMatcher.DEFAULT.scan(b, off, len, probe.reset(b, off, len));
+        token = probe.found();
+    }
+
+    private void begin() {
+        literals.reset();
+        hits = 0;
+        token = false;
+        owners = 0;
+        bytesRead = 0;
+    }
+
+    private void utf8(int index, int len) throws IOException {
+        if (len > utf.length) utf = new byte[Math.max(len, utf.length * 2)];
+        readFully(utf, len);
+
+        hits |= IndicatorMatcher.DEFAULT.scan(utf, 0, len, probe.reset(utf, 0, len));
+        token |= probe.found();
+
+        if (literal[index]) {
+            int from = 0;
+            for (int k = 0; k <= len; k++) {
+                if (k == len || utf[k] == 1 || utf[k] == 2) {
+                    hits |= literals.feed(utf, from, k - from);
+                    from = k + 1;
+                }
+            }
+        }
+
+        for (int k = 0; k < OWNER_NAMES.length; k++) {
+            byte[] name = OWNER_NAMES[k];
+            if (name.length == len && equals(name, utf, len)) {
+                utf8Owner[index] = OWNER_KINDS[k];
+                break;
+            }
+        }
+    }
+
+    private static boolean equals(byte[] a, byte[] b, int len) {
+        for (int i = 0; i < len; i++) if (a[i] != b[i]) return false;
+        return true;
+    }
+
+    private void ensurePool(int count) {
+        if (count > utf8Owner.length) {
+            int n = Math.max(count, utf8Owner.length * 2);
+            utf8Owner = new int[n];
+            classNameIndex = new int[n];
+            referenced = new boolean[n];
+            literal = new boolean[n];
+        } else {
+            Arrays.fill(utf8Owner, 0, count, 0);
+            Arrays.fill(classNameIndex, 0, count, 0);
+            Arrays.fill(referenced, 0, count, false);
+            Arrays.fill(literal, 0, count, false);
+        }
+    }
+
+    // === Results of the last scan ===
+
+    /** IndicatorMatcher.DEFAULT hit mask over the UTF8 constants and the joined literals. */
+    public long hits() { return hits; }
+    /** A session/token/sid assignment (BastionCore.TOKEN_PATTERN) inside one constant. */
+    public boolean tokenFound() { return token; }
+    /** OWNER_* bits for watched classes used as a field or method owner. */
+    public int owners() { return owners; }
+    /** Bytes read from the stream (header + constant pool only). */
+    public long bytesRead() { return bytesRead; }
+
+    // === Input ===
+
+    private boolean fill(int need) throws IOException {
+        if (limit - pos >= need) return true;
+        if (pos > 0) {
+            System.arraycopy(window, pos, window, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < need) {
+            int n = in.read(window, limit, window.length - limit);
+            if (n < 0) return false;
+            limit += n;
+        }
+        return true;
+    }
+
+    private void require(int need) throws IOException {
+        if (!fill(need)) throw new IOException("truncated constant pool");
+    }
+
+    private int u1() throws IOException {
+        require(1);
+        bytesRead++;
+        return window[pos++] & 0xFF;
+    }
+
+    private int u2() throws IOException {
+        require(2);
+        bytesRead += 2;
+        int v = ((window[pos] & 0xFF) << 8) | (window[pos + 1] & 0xFF);
+        pos += 2;
+        return v;
+    }
+
+    private int u4() throws IOException {
+        return (u2() << 16) | u2();
+    }
+
+    private void skip(int n) throws IOException {
+        require(n);
+        bytesRead += n;
+        pos += n;
+    }
+
+    private void readFully(byte[] dst, int len) throws IOException {
+        int done = 0;
+        while (done < len) {
+            if (pos == limit) require(1);
+            int n = Math.min(len - done, limit - pos);
+            System.arraycopy(window, pos, dst, done, n);
+            pos += n;
+            done += n;
+        }
+        bytesRead += len;
+    }
+}
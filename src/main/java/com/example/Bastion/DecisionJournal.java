@@ -0,0 +1,314 @@
+package com.example.bastion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * DecisionJournal
+ * - Remembered decisions are appended to bastion_state.journal, one line per change:
+ *   "crc32<TAB>P|R|C<TAB>kind<TAB>key<TAB>state".
+ * - A single daemon writer batches whatever is queued and fsyncs once per batch (group commit).
+ * - Past COMPACT_AFTER records the writer rewrites the snapshot (temp file + atomic rename)
+ *   and truncates the journal, so neither file is ever half-written in place.
+ * - replay() applies the journal on top of the loaded snapshot; a torn or corrupt tail is
+ *   dropped and compacted away.
+ */
+public class DecisionJournal {
+
+    /** Serializes the remembered state into the snapshot file's format. */
+    public interface SnapshotWriter {
+        void write(Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state, Writer out) throws IOException;
+    }
+
+    private static final int COMPACT_AFTER = 512;
+    private static final long LINGER_MILLIS = 20;
+
+    private final File journalFile;
+    private final File snapshotFile;
+    private final SnapshotWriter snapshotWriter;
+
+    // Remembered state as persisted (snapshot + journal); only touched by the writer thread after replay
+    private final Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> image = new EnumMap<>(DecisionTable.Kind.class);
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private volatile Thread writer;
+    private FileOutputStream out;
+    private int recordsSinceCompaction;
+
+    public DecisionJournal(File journalFile, File snapshotFile, SnapshotWriter snapshotWriter) {
+        this.journalFile = journalFile;
+        this.snapshotFile = snapshotFile;
+        this.snapshotWriter = snapshotWriter;
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) image.put(kind, new LinkedHashMap<>());
+    }
+
+    // === Records ===
+
+    public static final class Record {
+        final char op;
+        final DecisionTable.Kind kind;
+        final String key;
+        final BastionCore.DecisionState state;
+
+        private Record(char op, DecisionTable.Kind kind, String key, BastionCore.DecisionState state) {
+            this.op = op;
+            this.kind = kind;
+            this.key = key;
+            this.state = state;
+        }
+
+        public static Record put(DecisionTable.Kind kind, String key, BastionCore.DecisionState state) {
+            return new Record('P', kind, key, state);
+        }
+
+        public static Record remove(DecisionTable.Kind kind, String key) {
+            return new Record('R', kind, key, null);
+        }
+
+        public static Record clear() {
+            return new Record('C', null, null, null);
+        }
+
+        String encode() {
+            StringBuilder sb = new StringBuilder().append(op);
+            if (op != 'C') {
+                sb.append('\t').append(kind.name()).append('\t');
+                escape(key, sb);
+                sb.append('\t').append(state != null ? state.name() : "-");
+            }
+            return sb.toString();
+        }
+
+        static Record decode(String payload) {
+            String[] f = payload.split("\t", -1);
+            switch (f[0]) {
+                case "C": return clear();
+                case "P": return put(DecisionTable.Kind.valueOf(f[1]), unescape(f[2]), BastionCore.DecisionState.valueOf(f[3]));
+                case "R": return remove(DecisionTable.Kind.valueOf(f[1]), unescape(f[2]));
+                default: throw new IllegalArgumentException("unknown op " + f[0]);
+            }
+        }
+    }
+
+    private void apply(Record r) {
+        switch (r.op) {
+            case 'C':
+                for (Map<String, BastionCore.DecisionState> m : image.values()) m.clear();
+                break;
+            case 'P':
+                image.get(r.kind).put(r.key, r.state);
+                break;
+            case 'R':
+                image.get(r.kind).remove(r.key);
+                break;
+        }
+    }
+
+    // === Load ===
+
+    /**
+     * Apply the journal on top of the snapshot already loaded into state (updated in place).
+     * @return number of records replayed
+     */
+    public synchronized int replay(Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state) throws IOException {
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) {
+            image.get(kind).clear();
+            Map<String, BastionCore.DecisionState> m = state.get(kind);
+            if (m != null) image.get(kind).putAll(m);
+        }
+
+        int replayed = 0;
+        boolean torn = false;
+        if (journalFile.exists()) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    Record r = parseLine(line);
+                    if (r == null) { torn = true; break; }
+                    apply(r);
+                    replayed++;
+                }
+            }
+        }
+
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) {
+            state.put(kind, new LinkedHashMap<>(image.get(kind)));
+        }
+        recordsSinceCompaction = replayed;
+
+        // Appending after a torn line would glue the next record onto it
+        if (torn) compact();
+        return replayed;
+    }
+
+    private static Record parseLine(String line) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0) return null;
+        String payload = line.substring(tab + 1);
+        try {
+            if (Long.parseLong(line.substring(0, tab), 16) != crc(payload)) return null;
+            return Record.decode(payload);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // === Append (any thread, non-blocking) ===
+
+    public void append(Record r) {
+        ensureWriter();
+        queue.offer(r);
+    }
+
+    public void appendAll(Collection<Record> records) {
+        if (records.isEmpty()) return;
+        ensureWriter();
+        queue.addAll(records);
+    }
+
+    /** Block until everything appended so far is on disk, or the timeout passes. */
+    public boolean flush(long timeout, TimeUnit unit) {
+        if (writer == null) return true;
+        CountDownLatch done = new CountDownLatch(1);
+        queue.offer(done);
+        try {
+            return done.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void ensureWriter() {
+        if (writer != null) return;
+        synchronized (this) {
+            if (writer != null) return;
+            Thread t = new Thread(this::runWriter, "Bastion-Journal");
+            t.setDaemon(true);
+            t.start();
+            writer = t;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2, TimeUnit.SECONDS), "Bastion-Journal-Flush"));
+        }
+    }
+
+    // === Writer thread ===
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                Thread.sleep(LINGER_MILLIS); // let a burst (cascade + host seeding) land in one group
+                queue.drainTo(batch);
+                writeGroup(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable t) {
+                System.out.println("[Bastion][Journal][Error] " + t.getClass().getSimpleName() + ": " + t.getMessage());
+            } finally {
+                for (Object o : batch) {
+                    if (o instanceof CountDownLatch) ((CountDownLatch) o).countDown();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private synchronized void writeGroup(List<Object> batch) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int records = 0;
+        for (Object o : batch) {
+            if (!(o instanceof Record)) continue;
+            Record r = (Record) o;
+            String payload = r.encode();
+            sb.append(Long.toHexString(crc(payload))).append('\t').append(payload).append('\n');
+            apply(r);
+            records++;
+        }
+        if (records == 0) return;
+
+        if (out == null) out = new FileOutputStream(journalFile, true);
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.getFD().sync();
+
+        recordsSinceCompaction += records;
+        if (recordsSinceCompaction >= COMPACT_AFTER) compact();
+    }
+
+    // === Compaction ===
+
+    /** Write the current image as the snapshot and start an empty journal. */
+    public synchronized void compact() throws IOException {
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             Writer w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            snapshotWriter.write(image, w);
+            w.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // A crash before this point just replays the journal onto the new snapshot again
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        try (FileOutputStream trunc = new FileOutputStream(journalFile, false)) {
+            trunc.getFD().sync();
+        }
+        recordsSinceCompaction = 0;
+    }
+
+    public int getRecordsSinceCompaction() {
+        return recordsSinceCompaction;
+    }
+
+    // === Encoding helpers ===
+
+    private static long crc(String payload) {
+        CRC32 crc = new CRC32();
+        byte[] b = payload.getBytes(StandardCharsets.UTF_8);
+        crc.update(b, 0, b.length);
+        return crc.getValue();
+    }
+
+    private static void escape(String s, StringBuilder sb) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 >= s.length()) { sb.append(c); continue; }
+            char n = s.charAt(++i);
+            switch (n) {
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                default: sb.append(n);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bastion;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * DecisionLatch
+ * - Policy check for one connection: the first check() asks BastionCore, later calls are a volatile read.
+ * - Only approvals are latched; a denial throws and the next call asks again.
+ * - A latched approval stays valid until BastionCore.revocationEpoch() moves on (a DENIED decision,
+ *   clearDecisions() or revokeLatchedDecisions()), after which the connection is re-checked.
+ */
+public final class DecisionLatch {
+
+    private static final long NONE = -1L;
+
+    private final String modName;
+    private final String hostKey;
+    private final String fullUrl;
+
+    // Revocation epoch the approval was granted under, or NONE
+    private volatile long approvedEpoch = NONE;
+
+    public DecisionLatch(String modName, URL url) {
+        this.modName = modName;
+        this.hostKey = BastionCore.normalizeHostPort(
+                url.getHost(),
+                url.getPort() > 0 ? url.getPort() : url.getDefaultPort()
+        );
+        this.fullUrl = url.toString();
+    }
+
+    public void check(String action) throws IOException {
+        BastionCore core = BastionCore.getInstance();
+        if (approvedEpoch == core.revocationEpoch()) return;
+
+        synchronized (this) {
+            // Read before asking, so a revocation racing with the prompt is not lost
+            long epoch = core.revocationEpoch();
+            if (approvedEpoch == epoch) return;
+            core.enforceDecision(modName, hostKey, fullUrl, action);
+            approvedEpoch = epoch;
+        }
+    }
+
+    public boolean isLatched() {
+        return approvedEpoch == BastionCore.getInstance().revocationEpoch();
+    }
+
+    public String getModName() { return modName; }
+    public String getHostKey() { return hostKey; }
+}
@@ -0,0 +1,366 @@
+package com.example.bastion;
+
+import java.util.*;
+
+/**
+ * DecisionTable
+ * - Immutable snapshot of mod / host / URL decisions, published by BastionCore through a volatile field.
+ * - Keys are stored pre-folded ("mod#sha256[@host]") and indexed per (mod, fingerprint) row.
+ * - query() takes no lock and allocates nothing: lookups hash and compare the caller's strings in place.
+ * - Writers copy the snapshot through a Builder and publish the result.
+ */
+public final class DecisionTable {
+
+    public enum Kind { MOD, HOST, URL }
+
+    public static final DecisionTable EMPTY = new DecisionTable(
+            new LinkedHashMap<String, BastionCore.DecisionState>(),
+            new LinkedHashMap<String, BastionCore.DecisionState>(),
+            new LinkedHashMap<String, BastionCore.DecisionState>());
+
+    // Canonical entries (what gets persisted), insertion ordered
+    private final Map<String, BastionCore.DecisionState> mods;
+    private final Map<String, BastionCore.DecisionState> hosts;
+    private final Map<String, BastionCore.DecisionState> urls;
+
+    // Read index: folded mod name -> one row per fingerprint seen for it
+    private final FoldedMap<Row[]> rows;
+
+    private DecisionTable(Map<String, BastionCore.DecisionState> mods,
+                          Map<String, BastionCore.DecisionState> hosts,
+                          Map<String, BastionCore.DecisionState> urls) {
+        this.mods = Collections.unmodifiableMap(mods);
+        this.hosts = Collections.unmodifiableMap(hosts);
+        this.urls = Collections.unmodifiableMap(urls);
+        this.rows = index(mods, hosts, urls);
+    }
+
+    // === Reads (wait-free, allocation-free) ===
+
+    /**
+     * Same precedence as before: mod-wide decision, then host, then URL host.
+     */
+    public BastionCore.DecisionState query(String mod, String fingerprint, String host, String fullUrl) {
+        Row row = row(mod, fingerprint);
+        if (row == null) return BastionCore.DecisionState.UNDECIDED;
+
+        if (row.mod != null) return row.mod;
+
+        if (host != null) {
+            BastionCore.DecisionState st = row.hosts.get(host, 0, stripPort(host, 0, host.length()));
+            if (st != null) return st;
+        }
+
+        if (fullUrl != null) {
+            int from, to;
+            long range = urlHostRange(fullUrl);
+            if (range >= 0) {
+                from = (int) (range >>> 32);
+                to = (int) range;
+            } else {
+                from = 0;
+                to = fullUrl.length();
+            }
+            BastionCore.DecisionState st = row.urls.get(fullUrl, from, stripPort(fullUrl, from, to));
+            if (st != null) return st;
+        }
+
+        return BastionCore.DecisionState.UNDECIDED;
+    }
+
+    public Map<String, BastionCore.DecisionState> entries(Kind kind) {
+        switch (kind) {
+            case MOD:  return mods;
+            case HOST: return hosts;
+            default:   return urls;
+        }
+    }
+
+    public int size() {
+        return mods.size() + hosts.size() + urls.size();
+    }
+
+    private Row row(String mod, String fingerprint) {
+        if (mod == null || fingerprint == null) return null;
+        Row[] variants = rows.get(mod, 0, mod.length());
+        if (variants == null) return null;
+        for (Row r : variants) {
+            if (fingerprint.equals(r.fingerprint)) return r;
+        }
+        return null;
+    }
+
+    // === Writes (copy-on-write) ===
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private final Map<String, BastionCore.DecisionState> mods;
+        private final Map<String, BastionCore.DecisionState> hosts;
+        private final Map<String, BastionCore.DecisionState> urls;
+
+        private Builder(DecisionTable base) {
+            this.mods = new LinkedHashMap<>(base.mods);
+            this.hosts = new LinkedHashMap<>(base.hosts);
+            this.urls = new LinkedHashMap<>(base.urls);
+        }
+
+        public Builder put(Kind kind, String key, BastionCore.DecisionState state) {
+            map(kind).put(key, state);
+            return this;
+        }
+
+        public Builder remove(Kind kind, String key) {
+            map(kind).remove(key);
+            return this;
+        }
+
+        /** Drop every entry recorded against the given jar fingerprint. */
+        public Builder removeFingerprint(String fingerprint) {
+            return removeFingerprint(fingerprint, (kind, key) -> {});
+        }
+
+        /** Same, reporting each removed key (e.g. to journal it). */
+        public Builder removeFingerprint(String fingerprint, java.util.function.BiConsumer<Kind, String> removed) {
+            String marker = "#" + fingerprint;
+            for (Kind kind : Kind.values()) {
+                Iterator<String> it = map(kind).keySet().iterator();
+                while (it.hasNext()) {
+                    String k = it.next();
+                    int at = separator(k);
+                    if ((at < 0 ? k : k.substring(0, at)).endsWith(marker)) {
+                        it.remove();
+                        removed.accept(kind, k);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public DecisionTable build() {
+            return new DecisionTable(mods, hosts, urls);
+        }
+
+        private Map<String, BastionCore.DecisionState> map(Kind kind) {
+            switch (kind) {
+                case MOD:  return mods;
+                case HOST: return hosts;
+                default:   return urls;
+            }
+        }
+    }
+
+    // === Key construction (write side; mirrors the read-side normalization) ===
+
+    /** "mod#fingerprint", mod name folded to lower case. */
+    public static String modKey(String mod, String fingerprint) {
+        return fold(mod, 0, mod.length()) + "#" + fingerprint;
+    }
+
+    /** "mod#fingerprint@host", host folded and stripped of a trailing :port. */
+    public static String hostKey(String modKey, String host) {
+        return modKey + "@" + fold(host, 0, stripPort(host, 0, host.length()));
+    }
+
+    /** "mod#fingerprint@urlhost", or null if the URL cannot be parsed. */
+    public static String urlKey(String modKey, String fullUrl) {
+        long range = urlHostRange(fullUrl);
+        if (range < 0) return null;
+        int from = (int) (range >>> 32);
+        int to = (int) range;
+        return modKey + "@" + fold(fullUrl, from, stripPort(fullUrl, from, to));
+    }
+
+    /** Lower-case a stored key the same way lookups fold characters. */
+    public static String normalize(String key) {
+        return fold(key, 0, stripPort(key, 0, key.length()));
+    }
+
+    // === Index ===
+
+    private static final class Row {
+        final String fingerprint;
+        BastionCore.DecisionState mod;
+        FoldedMap<BastionCore.DecisionState> hosts = FoldedMap.empty();
+        FoldedMap<BastionCore.DecisionState> urls = FoldedMap.empty();
+
+        Row(String fingerprint) { this.fingerprint = fingerprint; }
+    }
+
+    private static FoldedMap<Row[]> index(Map<String, BastionCore.DecisionState> mods,
+                                          Map<String, BastionCore.DecisionState> hosts,
+                                          Map<String, BastionCore.DecisionState> urls) {
+        Map<String, Map<String, Row>> byMod = new HashMap<>();
+        Map<Row, Map<String, BastionCore.DecisionState>> rowHosts = new HashMap<>();
+        Map<Row, Map<String, BastionCore.DecisionState>> rowUrls = new HashMap<>();
+
+        for (Map.Entry<String, BastionCore.DecisionState> e : mods.entrySet()) {
+            Row r = rowFor(byMod, e.getKey());
+            if (r != null) r.mod = e.getValue();
+        }
+        for (Map.Entry<String, BastionCore.DecisionState> e : hosts.entrySet()) {
+            addTarget(byMod, rowHosts, e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, BastionCore.DecisionState> e : urls.entrySet()) {
+            addTarget(byMod, rowUrls, e.getKey(), e.getValue());
+        }
+        for (Map.Entry<Row, Map<String, BastionCore.DecisionState>> e : rowHosts.entrySet()) {
+            e.getKey().hosts = FoldedMap.of(e.getValue());
+        }
+        for (Map.Entry<Row, Map<String, BastionCore.DecisionState>> e : rowUrls.entrySet()) {
+            e.getKey().urls = FoldedMap.of(e.getValue());
+        }
+
+        Map<String, Row[]> out = new HashMap<>();
+        for (Map.Entry<String, Map<String, Row>> e : byMod.entrySet()) {
+            out.put(e.getKey(), e.getValue().values().toArray(new Row[0]));
+        }
+        return FoldedMap.of(out);
+    }
+
+    private static void addTarget(Map<String, Map<String, Row>> byMod,
+                                  Map<Row, Map<String, BastionCore.DecisionState>> targets,
+                                  String key, BastionCore.DecisionState state) {
+        int at = separator(key);
+        if (at < 0) return;
+        Row r = rowFor(byMod, key.substring(0, at));
+        if (r == null) return;
+        targets.computeIfAbsent(r, k -> new HashMap<>()).put(key.substring(at + 1), state);
+    }
+
+    // Index of the '@' between "mod#fingerprint" and the host, or -1 (fingerprints never contain '@')
+    private static int separator(String key) {
+        int hash = key.lastIndexOf('#');
+        return (hash < 0) ? -1 : key.indexOf('@', hash);
+    }
+
+    // "mod#fingerprint" -> row; keys without a fingerprint (legacy) are kept but never match
+    private static Row rowFor(Map<String, Map<String, Row>> byMod, String modKey) {
+        int hash = modKey.lastIndexOf('#');
+        if (hash < 0) return null;
+        String mod = modKey.substring(0, hash);
+        String fp = modKey.substring(hash + 1);
+        return byMod.computeIfAbsent(mod, k -> new HashMap<>()).computeIfAbsent(fp, Row::new);
+    }
+
+    // === String helpers (shared by reads and writes) ===
+
+    private static String fold(String s, int from, int to) {
+        char[] out = new char[to - from];
+        for (int i = from; i < to; i++) out[i - from] = Character.toLowerCase(s.charAt(i));
+        return new String(out);
+    }
+
+    /** End index after dropping a trailing ":digits" (same as replaceAll(":\\d+$", "")). */
+    static int stripPort(String s, int from, int to) {
+        int i = to;
+        while (i > from && Character.isDigit(s.charAt(i - 1))) i--;
+        if (i < to && i > from && s.charAt(i - 1) == ':') return i - 1;
+        return to;
+    }
+
+    /**
+     * Host of a URL as (from << 32 | to), or -1 if it is not a URL java.net.URL would accept.
+     * Matches URL.getHost(): userinfo and port are excluded, IPv6 literals keep their brackets.
+     */
+    static long urlHostRange(String url) {
+        int colon = url.indexOf(':');
+        if (colon <= 0 || !isKnownProtocol(url, colon)) return -1;
+
+        int start = colon + 1;
+        if (!url.startsWith("//", start)) return ((long) start << 32) | start; // no authority -> ""
+        start += 2;
+
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') break;
+            end++;
+        }
+        for (int i = end - 1; i >= start; i--) {
+            if (url.charAt(i) == '@') { start = i + 1; break; }
+        }
+        if (start < end && url.charAt(start) == '[') {
+            int close = url.indexOf(']', start);
+            if (close < 0 || close >= end) return -1;
+            end = close + 1;
+        } else {
+            for (int i = start; i < end; i++) {
+                if (url.charAt(i) == ':') { end = i; break; }
+            }
+        }
+        return ((long) start << 32) | end;
+    }
+
+    private static final String[] PROTOCOLS = { "http", "https", "ftp", "file", "jar" };
+
+    private static boolean isKnownProtocol(String url, int colon) {
+        for (String p : PROTOCOLS) {
+            if (p.length() == colon && url.regionMatches(true, 0, p, 0, colon)) return true;
+        }
+        return false;
+    }
+
+    // === Open-addressing map keyed by folded strings, probed with unfolded char ranges ===
+
+    private static final class FoldedMap<V> {
+        private static final FoldedMap<Object> EMPTY_MAP = new FoldedMap<>(new String[1], new Object[1]);
+
+        private final String[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        private FoldedMap(String[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.mask = keys.length - 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> FoldedMap<V> empty() {
+            return (FoldedMap<V>) EMPTY_MAP;
+        }
+
+        static <V> FoldedMap<V> of(Map<String, V> src) {
+            if (src.isEmpty()) return empty();
+            int cap = Integer.highestOneBit(Math.max(2, src.size() * 2 - 1)) << 1;
+            String[] keys = new String[cap];
+            Object[] values = new Object[cap];
+            for (Map.Entry<String, V> e : src.entrySet()) {
+                String k = e.getKey();
+                int i = hash(k, 0, k.length()) & (cap - 1);
+                while (keys[i] != null) i = (i + 1) & (cap - 1);
+                keys[i] = k;
+                values[i] = e.getValue();
+            }
+            return new FoldedMap<>(keys, values);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String s, int from, int to) {
+            int i = hash(s, from, to) & mask;
+            String k;
+            while ((k = keys[i]) != null) {
+                if (matches(k, s, from, to)) return (V) values[i];
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(String s, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + Character.toLowerCase(s.charAt(i));
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(String key, String s, int from, int to) {
+            if (key.length() != to - from) return false;
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != Character.toLowerCase(s.charAt(from + i))) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bastion;
+
+import java.util.Arrays;
+
+/**
+ * EncodedRunDetector
+ * - Byte-at-a-time detector for encoded runs inside an outbound body: base64, base64url (one
+ *   merged alphabet, so mixed or unpadded runs still decode) and hex.
+ * - Runs shorter than MIN_RUN are only counted (their chars are copied only when a chunk ends inside
+ *   one); once a run qualifies it is replayed and decoded on the fly in every alignment (4 for
+ *   base64, 2 for hex), and the decoded bytes are fed back into IndicatorMatcher cursors.
+ * - Decoding stops after MAX_DECODED_RUN chars of one run (large images / archives are not decoded
+ *   in full), so work is a small constant per input byte and memory is fixed.
+ * - Only indicators of 5+ chars (and webhook URLs) count inside decoded bytes: shorter ones turn
+ *   up in random binary too often.
+ * - Not thread-safe; one instance per stream.
+ */
+public final class EncodedRunDetector {
+
+    public static final int MIN_RUN = 40;
+    public static final int MAX_DECODED_RUN = 64 * 1024;
+    private static final int MIN_DECODED_INDICATOR = 5;
+
+    // Merged base64 / base64url alphabet; '=' is handled separately
+    private static final byte[] B64 = new byte[256];
+    private static final byte[] HEX = new byte[256];
+    static {
+        Arrays.fill(B64, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) B64[alphabet.charAt(i)] = (byte) i;
+        B64['-'] = 62;
+        B64['_'] = 63;
+
+        Arrays.fill(HEX, (byte) -1);
+        for (int i = 0; i < 10; i++) HEX['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            HEX['a' + i] = (byte) (10 + i);
+            HEX['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private final long mask;
+    private final Run base64 = new Run(B64, true);
+    private final Run hex = new Run(HEX, false);
+    private long decodedChars;
+
+    /** @param keywords IndicatorMatcher.DEFAULT bits to look for in decoded bytes (webhooks always count) */
+    public EncodedRunDetector(long keywords) {
+        long m = IndicatorMatcher.WEBHOOK;
+        for (int p = 0; p < IndicatorMatcher.DEFAULT.patternCount(); p++) {
+            if (IndicatorMatcher.DEFAULT.patternLength(p) >= MIN_DECODED_INDICATOR) m |= keywords & IndicatorMatcher.bit(p);
+        }
+        this.mask = m;
+    }
+
+    /** Next input byte; true if a decoded run now contains one of the indicators. */
+    public boolean step(int c) {
+        c &= 0xFF;
+        return base64.step(c) | hex.step(c);
+    }
+
+    /** Next chunk; true if a decoded run now contains one of the indicators. */
+    public boolean feed(byte[] b, int off, int len) {
+        return base64.feed(b, off, off + len) | hex.feed(b, off, off + len);
+    }
+
+    /** Input chars that went through a decoder (each counted once, whatever the alignments). */
+    public long getDecodedChars() { return decodedChars; }
+
+    // === One encoding ===
+
+    // Every alignment decodes the same char stream, so one byte per alignment is computed from
+    // the previous and current char instead of keeping per-alignment bit buffers.
+    private final class Run {
+        private final byte[] table;
+        private final boolean base64;   // 6 bits per char, 4 alignments; else hex: 4 bits, 2 alignments
+        private final IndicatorMatcher.Cursor[] decoded;
+        private final byte[] head = new byte[MIN_RUN];
+        private int length;   // capped at MAX_DECODED_RUN + 1
+        private int headLen;  // chars of the current short run held in head
+        private int pos;      // chars decoded since the decoders (re)started
+        private int prev;
+
+        Run(byte[] table, boolean base64) {
+            this.table = table;
+            this.base64 = base64;
+            this.decoded = new IndicatorMatcher.Cursor[base64 ? 4 : 2];
+            for (int i = 0; i < decoded.length; i++) decoded[i] = IndicatorMatcher.DEFAULT.cursor();
+        }
+
+        boolean step(int c) {
+            int v = table[c];
+            if (v < 0) {
+                separator(c);
+                return false;
+            }
+            if (length < MIN_RUN) {
+                head[headLen++] = (byte) v;
+                if (++length < MIN_RUN) return false;
+                return qualify(null, 0, 0);
+            }
+            if (length > MAX_DECODED_RUN) return false;
+            length++;
+            return push(v);
+        }
+
+        // Same as step() per byte, but a short run's chars are only copied to head when the chunk ends
+        // inside it; a run that qualifies within the chunk is replayed from the array.
+        boolean feed(byte[] b, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int c = b[i] & 0xFF;
+                int v = table[c];
+                if (v < 0) {
+                    separator(c);
+                    continue;
+                }
+                if (length < MIN_RUN) {
+                    if (++length < MIN_RUN) continue;
+                    if (qualify(b, i + 1 - (MIN_RUN - headLen), i + 1)) return true;
+                    continue;
+                }
+                if (length > MAX_DECODED_RUN) continue;
+                length++;
+                if (push(v)) return true;
+            }
+            if (length > headLen && length < MIN_RUN) {
+                for (int k = to - (length - headLen); k < to; k++) head[headLen++] = table[b[k] & 0xFF];
+            }
+            return false;
+        }
+
+        // The run reached MIN_RUN: decode it from the start (head, then b[from, to) if given)
+        private boolean qualify(byte[] b, int from, int to) {
+            restartDecoders();
+            int n = headLen;
+            headLen = 0;
+            for (int k = 0; k < n; k++) {
+                if (push(head[k])) return true;
+            }
+            for (int k = from; k < to; k++) {
+                if (push(table[b[k] & 0xFF])) return true;
+            }
+            return false;
+        }
+
+        // '=' is padding (or a "key=" prefix): a qualified base64 run keeps going with fresh decoders,
+        // anything else ends the run
+        private void separator(int c) {
+            if (c == '=' && base64 && length >= MIN_RUN) {
+                restartDecoders();
+            } else {
+                length = 0;
+                headLen = 0;
+            }
+        }
+
+        private boolean push(int v) {
+            decodedChars++;
+            int i = pos++;
+            int p = prev;
+            prev = v;
+            long hits = 0;
+            if (base64) {
+                // Alignment a is at quantum position (i - a) & 3; positions 1..3 complete a byte
+                for (int a = 0; a < 4 && a < i; a++) {
+                    switch ((i - a) & 3) {
+                        case 1: hits |= decoded[a].feed((p << 2) | (v >>> 4)); break;
+                        case 2: hits |= decoded[a].feed(((p & 0xF) << 4) | (v >>> 2)); break;
+                        case 3: hits |= decoded[a].feed(((p & 0x3) << 6) | v); break;
+                        default: break;
+                    }
+                }
+            } else if (i > 0) {
+                hits = decoded[(i - 1) & 1].feed((p << 4) | v);
+            }
+            return (hits & mask) != 0;
+        }
+
+        private void restartDecoders() {
+            pos = 0;
+            for (IndicatorMatcher.Cursor d : decoded) d.reset();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.bastion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * IndicatorMatcher
+ * - Aho-Corasick automaton over raw bytes; ASCII case-insensitive without decoding or lowercasing input.
+ * - Up to 64 patterns; one pass reports every hit as a bit in a long mask, or per hit through a callback.
+ * - Transitions are a dense table over a compressed alphabet (only bytes that occur in patterns
+ *   get their own column), so a step is two array reads. Entries hold the next state's row offset,
+ *   complemented when that state has output, so the hit mask is only read on a (rare) match.
+ * - Cursor carries the automaton state across chunks for streaming input.
+ * - DEFAULT holds the shared static-scan / payload indicators (see the ids below).
+ */
+public final class IndicatorMatcher {
+
+    // ASCII case fold (declared before DEFAULT is built)
+    private static final byte[] FOLD = new byte[256];
+    static {
+        for (int i = 0; i < 256; i++) FOLD[i] = (byte) ((i >= 'A' && i <= 'Z') ? i + 32 : i);
+    }
+
+    // === Shared indicator set ===
+    public static final IndicatorMatcher DEFAULT;
+    public static final int DISCORD_WEBHOOK, DISCORDAPP_WEBHOOK, SESSION, TOKEN, SID, UUID, USERID,
+            ACCESSTOKEN, SESSIONTOKEN, PASSWORD, AUTH, CLIENTSECRET, HTTP, POST, SEND, UPLOAD;
+    public static final long WEBHOOK;
+
+    static {
+        Builder b = new Builder();
+        DISCORD_WEBHOOK = b.add("discord.com/api/webhooks");
+        DISCORDAPP_WEBHOOK = b.add("discordapp.com/api/webhooks");
+        SESSION = b.add("session");
+        TOKEN = b.add("token");
+        SID = b.add("sid");
+        UUID = b.add("uuid");
+        USERID = b.add("userid");
+        ACCESSTOKEN = b.add("accesstoken");
+        SESSIONTOKEN = b.add("sessiontoken");
+        PASSWORD = b.add("password");
+        AUTH = b.add("auth");
+        CLIENTSECRET = b.add("clientsecret");
+        HTTP = b.add("http");
+        POST = b.add("post");
+        SEND = b.add("send");
+        UPLOAD = b.add("upload");
+        DEFAULT = b.build();
+        WEBHOOK = bit(DISCORD_WEBHOOK) | bit(DISCORDAPP_WEBHOOK);
+    }
+
+    public static long bit(int pattern) {
+        return 1L << pattern;
+    }
+
+    /**
+     * Byte-level equivalent of BastionCore.TOKEN_PATTERN, fed by DEFAULT's hits:
+     * (session|token|sid) after a word boundary, then '=' or ':' and 16+ of [a-f0-9-].
+     * Reusable across scans via reset().
+     */
+    public static final class TokenProbe implements HitListener {
+        private byte[] b;
+        private int from, to;
+        private boolean found;
+
+        public TokenProbe reset(byte[] b, int off, int len) {
+            this.b = b;
+            this.from = off;
+            this.to = off + len;
+            this.found = false;
+            return this;
+        }
+
+        public boolean found() { return found; }
+
+        @Override
+        public void onHit(int pattern, int end) {
+            if (found || (pattern != SESSION && pattern != TOKEN && pattern != SID)) return;
+            int start = end - DEFAULT.patternLength(pattern) + 1;
+            if (start > from && isWord(b[start - 1])) return;
+
+            int i = end + 1;
+            if (i >= to || (b[i] != '=' && b[i] != ':')) return;
+            int run = 0;
+            for (i++; i < to && run < 16 && isHexOrDash(b[i]); i++) run++;
+            found = run >= 16;
+        }
+
+        private static boolean isWord(byte c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+
+        private static boolean isHexOrDash(byte c) {
+            return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-';
+        }
+    }
+
+    /** Called for every hit; end is the index of the hit's last byte in the scanned array. */
+    public interface HitListener {
+        void onHit(int pattern, int end);
+    }
+
+    private final byte[] patternLengths;
+    private final int[] byteClass;   // folded byte -> column
+    private final int columns;
+    private final int[] step;        // row offset (state * columns) + column -> next row offset, ~offset if it has output
+    private final long[] output;     // state -> patterns ending here (including suffixes)
+
+    private IndicatorMatcher(byte[] patternLengths, int[] byteClass, int columns, int[] step, long[] output) {
+        this.patternLengths = patternLengths;
+        this.byteClass = byteClass;
+        this.columns = columns;
+        this.step = step;
+        this.output = output;
+    }
+
+    public int patternCount() { return patternLengths.length; }
+    public int patternLength(int pattern) { return patternLengths[pattern]; }
+
+    // === Scanning ===
+
+    public long scan(byte[] b) {
+        return scan(b, 0, b.length);
+    }
+
+    /** Mask of every pattern that occurs in b[off, off+len). */
+    public long scan(byte[] b, int off, int len) {
+        int s = 0;
+        long hits = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            int t = step[s + byteClass[b[i] & 0xFF]];
+            if (t < 0) {
+                t = ~t;
+                hits |= output[t / columns];
+            }
+            s = t;
+        }
+        return hits;
+    }
+
+    /** Same pass, reporting each hit position; returns the mask. */
+    public long scan(byte[] b, int off, int len, HitListener listener) {
+        int s = 0;
+        long hits = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            int t = step[s + byteClass[b[i] & 0xFF]];
+            if (t < 0) {
+                t = ~t;
+                long out = output[t / columns];
+                hits |= out;
+                for (long m = out; m != 0; m &= m - 1) listener.onHit(Long.numberOfTrailingZeros(m), i);
+            }
+            s = t;
+        }
+        return hits;
+    }
+
+    /** Scan chars as Latin-1 bytes (higher chars can't match an ASCII pattern). */
+    public long scan(CharSequence text) {
+        int s = 0;
+        long hits = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            int t = step[s + (c < 256 ? byteClass[c] : 0)];
+            if (t < 0) {
+                t = ~t;
+                hits |= output[t / columns];
+            }
+            s = t;
+        }
+        return hits;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Streaming state: feed chunks in order, hits accumulate across chunk boundaries. */
+    public final class Cursor {
+        private int state;   // row offset
+        private long hits;
+
+        public long feed(byte[] b, int off, int len) {
+            int s = state;
+            long h = hits;
+            for (int i = off, end = off + len; i < end; i++) {
+                int t = step[s + byteClass[b[i] & 0xFF]];
+                if (t < 0) {
+                    t = ~t;
+                    h |= output[t / columns];
+                }
+                s = t;
+            }
+            state = s;
+            return hits = h;
+        }
+
+        public long feed(int b) {
+            int t = step[state + byteClass[b & 0xFF]];
+            if (t < 0) {
+                t = ~t;
+                hits |= output[t / columns];
+            }
+            state = t;
+            return hits;
+        }
+
+        public long hits() { return hits; }
+        public boolean any(long mask) { return (hits & mask) != 0; }
+
+        public void reset() {
+            state = 0;
+            hits = 0;
+        }
+    }
+
+    // === Building ===
+
+    public static final class Builder {
+        private final List<byte[]> patterns = new ArrayList<>();
+
+        /** Add a pattern (ASCII, matched case-insensitively); returns its id. */
+        public int add(String pattern) {
+            if (patterns.size() == 64) throw new IllegalStateException("IndicatorMatcher supports at most 64 patterns");
+            byte[] p = pattern.getBytes(StandardCharsets.ISO_8859_1);
+            if (p.length == 0 || p.length > 127) throw new IllegalArgumentException("bad pattern length: " + pattern);
+            for (int i = 0; i < p.length; i++) p[i] = FOLD[p[i] & 0xFF];
+            patterns.add(p);
+            return patterns.size() - 1;
+        }
+
+        public IndicatorMatcher build() {
+            // Compressed alphabet: column 0 is "any byte not in a pattern"
+            int[] byteClass = new int[256];
+            int columns = 1;
+            for (byte[] p : patterns) {
+                for (byte x : p) {
+                    if (byteClass[x & 0xFF] == 0) byteClass[x & 0xFF] = columns++;
+                }
+            }
+            for (int c = 'A'; c <= 'Z'; c++) byteClass[c] = byteClass[c + 32];
+
+            // Trie
+            List<int[]> gotos = new ArrayList<>();
+            List<Long> outs = new ArrayList<>();
+            gotos.add(filled(columns));
+            outs.add(0L);
+            for (int id = 0; id < patterns.size(); id++) {
+                int s = 0;
+                for (byte x : patterns.get(id)) {
+                    int col = byteClass[x & 0xFF];
+                    int next = gotos.get(s)[col];
+                    if (next < 0) {
+                        next = gotos.size();
+                        gotos.get(s)[col] = next;
+                        gotos.add(filled(columns));
+                        outs.add(0L);
+                    }
+                    s = next;
+                }
+                outs.set(s, outs.get(s) | (1L << id));
+            }
+
+            // Failure links (BFS), folded straight into a complete transition table
+            int states = gotos.size();
+            int[] delta = new int[states * columns];
+            long[] output = new long[states];
+            int[] fail = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int col = 0; col < columns; col++) {
+                int t = gotos.get(0)[col];
+                if (t < 0) {
+                    delta[col] = 0;
+                } else {
+                    delta[col] = t;
+                    fail[t] = 0;
+                    queue.add(t);
+                }
+            }
+            output[0] = outs.get(0);
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                output[s] = outs.get(s) | output[fail[s]];
+                for (int col = 0; col < columns; col++) {
+                    int t = gotos.get(s)[col];
+                    if (t < 0) {
+                        delta[s * columns + col] = delta[fail[s] * columns + col];
+                    } else {
+                        delta[s * columns + col] = t;
+                        fail[t] = delta[fail[s] * columns + col];
+                        queue.add(t);
+                    }
+                }
+            }
+
+            // Row offsets instead of state numbers, flagged (complemented) where the target has output
+            int[] step = new int[delta.length];
+            for (int i = 0; i < delta.length; i++) {
+                int t = delta[i];
+                step[i] = (output[t] != 0) ? ~(t * columns) : t * columns;
+            }
+
+            byte[] lengths = new byte[patterns.size()];
+            for (int i = 0; i < lengths.length; i++) lengths[i] = (byte) patterns.get(i).length;
+            return new IndicatorMatcher(lengths, byteClass, columns, step, output);
+        }
+
+        private static int[] filled(int n) {
+            int[] a = new int[n];
+            Arrays.fill(a, -1);
+            return a;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bastion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * InspectedOutputStream
+ * - The stream side of an InspectionPipeline flow: every write goes through the policy stage
+ *   (a volatile read once latched), then the payload scan (StreamingInspector, no copy).
+ * - The first time the scan trips, the pipeline's verdict runs before the tripping chunk is sent.
+ *   A denial fails that write and every later one, so a blocked body is never completed.
+ * - An approval is latched for the life of the stream (for an SSL socket: the socket) until
+ *   BastionCore.revocationEpoch() moves on; the next write after that asks again.
+ * - Gated mode (fixed-length / chunked HTTP bodies, which the JDK streams straight to the socket):
+ *   writes are held in a StagingBuffer until there is a verdict, then released to the delegate
+ *   in one write or discarded. A clean body is released when its declared length is reached,
+ *   on close(), or by finish(); one that outgrows the hold limit has its clean prefix released
+ *   and is inspected in pass-through from there on.
+ * - Writes are synchronized (uncontended in practice): socket streams can be shared between threads.
+ */
+public class InspectedOutputStream extends OutputStream {
+    private static final long NONE = -1L;
+
+    private final InspectionPipeline.Flow flow;
+    private final OutputStream delegate;
+    private final StreamingInspector inspector;   // null when the pipeline doesn't scan
+    private final String writeAction, flushAction;
+    private long verdictEpoch = NONE;   // revocation epoch of the latched approval
+    private IOException blocked;
+
+    // Gated mode: staged bytes until the verdict (null once released or when not gated)
+    private StagingBuffer staging;
+    private final boolean gated;
+    private final int holdLimit;
+    private final long expectedLength;
+
+    InspectedOutputStream(InspectionPipeline.Flow flow, OutputStream delegate, boolean gated, long expectedLength) {
+        this.flow = flow;
+        this.delegate = delegate;
+        this.inspector = flow.scans() ? flow.pipeline.newInspector() : null;
+        this.writeAction = flow.action("write");
+        this.flushAction = flow.action("flush");
+        this.gated = gated;
+        this.expectedLength = expectedLength;
+        int cap = BastionCore.getInstance().getStagingBufferCapBytes();
+        this.holdLimit = (expectedLength >= 0) ? (int) Math.min(cap, expectedLength) : cap;
+        if (gated && inspector != null) staging = new StagingBuffer(holdLimit);
+    }
+
+    @Override public synchronized void write(int b) throws IOException {
+        if (blocked != null) throw blocked;
+        long start = System.nanoTime();
+        flow.check(writeAction);
+        boolean sensitive = inspector != null && inspector.feed(b);
+        flow.pipeline.recordWrite(1, System.nanoTime() - start);
+        if (staging == null) {
+            if (sensitive) decideOnce();
+            delegate.write(b);
+            return;
+        }
+        if (staging.size() == holdLimit) {
+            if (sensitive) decideOnce();
+            release();
+            delegate.write(b);
+            return;
+        }
+        staging.write(b);
+        afterStaged(sensitive);
+    }
+
+    @Override public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (blocked != null) throw blocked;
+        long start = System.nanoTime();
+        flow.check(writeAction);
+        boolean sensitive = inspector != null && inspector.feed(b, off, len);
+        flow.pipeline.recordWrite(len, System.nanoTime() - start);
+        if (staging == null) {
+            if (sensitive) decideOnce();
+            delegate.write(b, off, len);
+            return;
+        }
+        if (len > holdLimit - staging.size()) {
+            // Too big to hold: decide now if needed, then the clean (or approved) prefix goes first
+            if (sensitive) decideOnce();
+            release();
+            delegate.write(b, off, len);
+            return;
+        }
+        staging.write(b, off, len);
+        afterStaged(sensitive);
+    }
+
+    // Staged bytes are released as soon as the verdict is known: approval, or a complete clean body
+    private void afterStaged(boolean sensitive) throws IOException {
+        if (sensitive) {
+            decideOnce();
+            release();
+        } else if (expectedLength >= 0 && inspector.getInspectedBytes() >= expectedLength) {
+            release();
+        }
+    }
+
+    private void release() throws IOException {
+        StagingBuffer s = staging;
+        if (s == null) return;
+        staging = null;
+        s.drainTo(delegate);
+    }
+
+    /**
+     * End of body: release whatever is still staged. Callers that read the response without
+     * closing the stream first (HttpURLConnection allows that) must call this before the request
+     * is completed. Throws the stored denial if the body was blocked.
+     */
+    public synchronized void finish() throws IOException {
+        if (blocked != null) throw blocked;
+        release();
+    }
+
+    // Held bytes stay held: a gated flush is a no-op until the verdict
+    @Override public synchronized void flush() throws IOException {
+        if (blocked != null) throw blocked;
+        flow.check(flushAction);
+        if (staging == null) delegate.flush();
+    }
+
+    // A blocked body is not closed: closing would complete the request with what was written
+    @Override public synchronized void close() throws IOException {
+        finish();
+        delegate.close();
+    }
+
+    public boolean isBlocked() { return blocked != null; }
+    public InspectionPipeline.Flow getFlow() { return flow; }
+
+    // Verdict once per stream (and revocation epoch); a denial discards staged bytes and keeps failing every later write
+    private void decideOnce() throws IOException {
+        if (blocked != null) throw blocked;
+        // Read before asking, so a revocation racing with the prompt is not lost
+        long epoch = BastionCore.getInstance().revocationEpoch();
+        if (verdictEpoch == epoch) return;
+        try {
+            flow.decide(inspector.getVerdict(), gated);
+            verdictEpoch = epoch;
+        } catch (IOException | RuntimeException e) {
+            if (staging != null) staging.release();
+            staging = null;
+            blocked = (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+            throw blocked;
+        }
+    }
+}
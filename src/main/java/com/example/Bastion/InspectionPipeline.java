@@ -0,0 +1,353 @@
+package com.example.bastion;
+
+import com.example.bastion.ui.GuiSessionPrompt;
+import com.example.bastion.ui.ToastManager;
+import net.minecraft.client.Minecraft;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * InspectionPipeline
+ * - The one outbound inspection path shared by the socket, SSL and HTTP interceptors, as five stages:
+ *   attribution -> policy lookup -> payload scan -> verdict -> audit.
+ * - A pipeline is an immutable preset (HTTP, MONITOR, SOCKET, SSL below, or a Builder); open() runs
+ *   attribution once and returns a Flow, which holds the per-connection state.
+ * - Flow.check() is the policy stage; Flow.output() puts the scan / verdict / audit stages in front of
+ *   a stream (InspectedOutputStream). With no policy and no scan, output() returns the stream itself.
+ * - Interceptors keep their own connect-time handling; only what is inspected, and how a verdict
+ *   is reached and recorded, lives here.
+ * - Each pipeline counts inspected writes, bytes and the time spent inspecting them (stats()).
+ * - A pipeline may also apply its verdict to gated bodies only (gatedVerdictOnly); pass-through
+ *   streams are then audited but never failed, as the legacy alert-only monitor did.
+ */
+public final class InspectionPipeline {
+
+    // === Stages ===
+
+    /** Who is making the connection. */
+    public interface Attribution {
+        String resolve();
+    }
+
+    /** Per-operation policy check; throws to refuse. */
+    public interface Policy {
+        void check(Flow flow, String action) throws IOException;
+    }
+
+    /** Called once per stream when the scan trips; returns to let the body through, throws to block it. */
+    public interface Verdict {
+        void decide(Flow flow, StreamingInspector.Indicator indicator) throws IOException;
+    }
+
+    /** Records what happened to a flow's payload. */
+    public interface Audit {
+        void record(Flow flow, Event event, StreamingInspector.Indicator indicator);
+    }
+
+    public enum Event { SENSITIVE, APPROVED, BLOCKED }
+
+    // --- Attribution ---
+    public static final Attribution MOD_ID = () -> {
+        String id = CallerAttributionCache.callerModId();
+        return id != null ? id : "unknown-mod";
+    };
+    public static final Attribution DISPLAY_NAME = CallerAttributionCache::callerDisplayName;
+    public static final Attribution CALLER_CLASS = () -> {
+        String cls = CallerLocator.get().firstMatch(c -> !c.startsWith("net.minecraft") && CallerLocator.EXTERNAL.test(c));
+        return (cls != null) ? cls : "Unknown Mod";
+    };
+
+    // --- Policy ---
+    /** BastionCore.enforceDecision once per flow, then a volatile read until revoked (DecisionLatch). */
+    public static final Policy LATCHED = (flow, action) -> flow.latch().check(action);
+
+    // --- Verdict ---
+    /**
+     * Queue a FORCE prompt and wait up to 15 s for it; anything but approval blocks.
+     * A timeout records a session denial, unless the mod already had a mod-wide approval.
+     */
+    public static final Verdict PROMPT = (flow, indicator) -> {
+        final String modName = flow.getModName();
+        final String reason = "[Bastion] " + modName + " attempted to send sensitive data → " + flow.getTarget();
+        final BastionCore core = BastionCore.getInstance();
+        final boolean wasApproved = core.queryDecision(modName, null, null) == BastionCore.DecisionState.APPROVED;
+
+        // freeze until decision
+        final CountDownLatch latch = new CountDownLatch(1);
+        GuiSessionPrompt.queue(modName, reason,
+                () -> { core.recordDecision(modName, null, null, BastionCore.DecisionState.APPROVED, false); latch.countDown(); },
+                () -> { core.recordDecision(modName, null, null, BastionCore.DecisionState.DENIED, false); latch.countDown(); }
+        );
+
+        try {
+            if (!latch.await(15, TimeUnit.SECONDS)) {
+                if (!wasApproved) core.setDecision(modName, BastionCore.DecisionState.DENIED, false);
+                throw new IOException("[Bastion] Timed out waiting for override decision.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("[Bastion] Interrupted while waiting for override decision.", e);
+        }
+
+        if (core.queryDecision(modName, null, null) != BastionCore.DecisionState.APPROVED) {
+            throw new IOException("[Bastion] Sensitive payload blocked for " + modName);
+        }
+    };
+
+    /**
+     * PROMPT, unless the mod already has an approval covering this host: a standing approval is
+     * not asked again (nor left waiting on a prompt the client thread may be unable to show).
+     */
+    public static final Verdict PROMPT_UNLESS_APPROVED = (flow, indicator) -> {
+        BastionCore.DecisionState state = BastionCore.getInstance()
+                .queryDecision(flow.getModName(), flow.getHost(), flow.getFullUrl());
+        if (state != BastionCore.DecisionState.APPROVED) PROMPT.decide(flow, indicator);
+    };
+
+    /** Only an existing approval for this mod and target lets the payload through. */
+    public static final Verdict REMEMBERED = (flow, indicator) -> {
+        BastionCore.DecisionState state = BastionCore.getInstance()
+                .queryDecision(flow.getModName(), flow.getHost(), flow.getFullUrl());
+        if (state != BastionCore.DecisionState.APPROVED) {
+            throw new IOException("[Bastion] Sensitive payload held for " + flow.getModName() + " → " + flow.getTarget());
+        }
+    };
+
+    // --- Audit ---
+    public static final Audit LOG = (flow, event, indicator) -> BastionCore.getInstance().log(
+            (event == Event.BLOCKED) ? BastionCore.LogLevel.WARN : BastionCore.LogLevel.INFO,
+            "[Inspect][" + flow.pipeline.name + "] " + event + " " + flow.getModName() + " → " + flow.getTarget()
+                    + " (" + indicator + ")");
+
+    /** LOG, plus toast, webhook and an informational prompt when a payload is first flagged. */
+    public static final Audit ALERT = (flow, event, indicator) -> {
+        LOG.record(flow, event, indicator);
+        if (event != Event.SENSITIVE) return;
+        String msg = "[Bastion] " + flow.getModName() + " tried sending sensitive data → " + flow.getTarget();
+        ToastManager.addToast(msg, 0xFF5555);
+        BastionCore.getInstance().sendWebhook(msg, BastionCore.Severity.CRITICAL);
+        Minecraft.getMinecraft().addScheduledTask(() ->
+                GuiSessionPrompt.open(flow.getModName(), "sending sensitive data to " + flow.getHost())
+        );
+    };
+
+    // === Presets ===
+
+    public static final InspectionPipeline HTTP = new Builder("HTTP")
+            .attribution(DISPLAY_NAME).policy(LATCHED)
+            .scan(StreamingInspector.PAYLOAD_KEYWORDS, true).verdict(PROMPT_UNLESS_APPROVED).gatedVerdictOnly().audit(LOG)
+            .build();
+
+    public static final InspectionPipeline MONITOR = new Builder("Monitor")
+            .attribution(CALLER_CLASS)
+            .scan(StreamingInspector.MONITOR_KEYWORDS, false).verdict(REMEMBERED).gatedVerdictOnly().audit(ALERT)
+            .build();
+
+    // Connect-time approval stays in the socket implementations; plain socket payloads are not scanned
+    public static final InspectionPipeline SOCKET = new Builder("Socket").attribution(MOD_ID).audit(LOG).build();
+
+    // TLS plaintext, before encryption. Vanilla auth hosts legitimately carry the session token.
+    public static final InspectionPipeline SSL = new Builder("SSL")
+            .attribution(MOD_ID)
+            .scan(StreamingInspector.TLS_KEYWORDS, false).skipScanFor(host -> !BastionCore.isSuspiciousHost(host))
+            .verdict(PROMPT_UNLESS_APPROVED).audit(LOG)
+            .build();
+
+    private final String name;
+    private final Attribution attribution;
+    private final Policy policy;
+    private final long keywords;
+    private final boolean detectJwt;
+    private final Predicate<String> skipScan;
+    private final Verdict verdict;
+    private final boolean gatedVerdictOnly;
+    private final Audit audit;
+
+    // Inspection cost: time in the policy and scan stages of InspectedOutputStream writes
+    // (delegate writes and verdict prompts excluded)
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong inspectNanos = new AtomicLong();
+
+    private InspectionPipeline(Builder b) {
+        this.name = b.name;
+        this.attribution = b.attribution;
+        this.policy = b.policy;
+        this.keywords = b.keywords;
+        this.detectJwt = b.detectJwt;
+        this.skipScan = b.skipScan;
+        this.verdict = b.verdict;
+        this.gatedVerdictOnly = b.gatedVerdictOnly;
+        this.audit = b.audit;
+    }
+
+    public String getName() { return name; }
+
+    /** Attribution stage on its own (the calling thread's stack). */
+    public String attribute() {
+        return attribution.resolve();
+    }
+
+    public Flow open(URL url) {
+        return open(attribute(), url);
+    }
+
+    public Flow open(String modName, URL url) {
+        int port = url.getPort() > 0 ? url.getPort() : url.getDefaultPort();
+        return new Flow(this, modName, url, url.getHost(), port);
+    }
+
+    public Flow open(String host, int port) {
+        return open(attribute(), host, port);
+    }
+
+    public Flow open(String modName, String host, int port) {
+        return new Flow(this, modName, null, host, port);
+    }
+
+    boolean scans() {
+        return keywords != 0 || detectJwt;
+    }
+
+    void recordWrite(int len, long nanos) {
+        writes.incrementAndGet();
+        bytes.addAndGet(len);
+        inspectNanos.addAndGet(nanos);
+    }
+
+    // === Stats ===
+
+    public long getWrites() { return writes.get(); }
+    public long getBytes() { return bytes.get(); }
+    public long getInspectNanos() { return inspectNanos.get(); }
+
+    public String stats() {
+        long w = getWrites(), n = getInspectNanos();
+        return name + ": writes=" + w + " bytes=" + getBytes() + " inspectMs=" + (n / 1_000_000L)
+                + " nsPerWrite=" + (w == 0 ? 0 : n / w);
+    }
+
+    StreamingInspector newInspector() {
+        return new StreamingInspector(keywords, detectJwt);
+    }
+
+    // === Per-connection state ===
+
+    public static final class Flow {
+        final InspectionPipeline pipeline;
+        private final String modName;
+        private final URL url;
+        private final String host;
+        private final int port;
+        private final DecisionLatch latch;   // built up front, so check() never takes a monitor once latched
+
+        Flow(InspectionPipeline pipeline, String modName, URL url, String host, int port) {
+            this.pipeline = pipeline;
+            this.modName = modName;
+            this.url = url;
+            this.host = host;
+            this.port = port;
+            this.latch = (pipeline.policy != null && url != null) ? new DecisionLatch(modName, url) : null;
+        }
+
+        /** Payload scan stage applies to this flow (the pipeline scans and the host is not exempt). */
+        boolean scans() {
+            return pipeline.scans() && (pipeline.skipScan == null || !pipeline.skipScan.test(host));
+        }
+
+        /** Policy stage; a no-op for pipelines without one. */
+        public void check(String action) throws IOException {
+            if (pipeline.policy != null) pipeline.policy.check(this, action);
+        }
+
+        /** Pass-through inspection for a stream whose bytes go out as written (sockets, buffered HTTP). */
+        public InspectedOutputStream inspect(OutputStream out) {
+            return new InspectedOutputStream(this, out, false, -1);
+        }
+
+        /** inspect(out), or out itself when this pipeline has neither a policy nor a scan stage. */
+        public OutputStream output(OutputStream out) {
+            if (pipeline.policy == null && !scans()) return out;
+            return inspect(out);
+        }
+
+        /**
+         * Gated writes, held in a StagingBuffer until the verdict.
+         * @param expectedLength declared body length, or -1 if unknown (chunked)
+         */
+        public InspectedOutputStream gatedOutput(OutputStream out, long expectedLength) {
+            return new InspectedOutputStream(this, out, true, expectedLength);
+        }
+
+        /** Audit, then the verdict stage; gated: the stream holds its bytes until this returns. */
+        void decide(StreamingInspector.Indicator indicator, boolean gated) throws IOException {
+            audit(Event.SENSITIVE, indicator);
+            if (pipeline.verdict == null || (pipeline.gatedVerdictOnly && !gated)) return;
+            try {
+                pipeline.verdict.decide(this, indicator);
+            } catch (IOException | RuntimeException e) {
+                audit(Event.BLOCKED, indicator);
+                throw e;
+            }
+            audit(Event.APPROVED, indicator);
+        }
+
+        private void audit(Event event, StreamingInspector.Indicator indicator) {
+            if (pipeline.audit != null) pipeline.audit.record(this, event, indicator);
+        }
+
+        DecisionLatch latch() {
+            if (latch == null) throw new IllegalStateException("latched policy needs a URL");
+            return latch;
+        }
+
+        public String action(String what) {
+            return pipeline.name + " → " + what;
+        }
+
+        public String getModName() { return modName; }
+        public String getHost() { return host; }
+        public int getPort() { return port; }
+        public String getFullUrl() { return url != null ? url.toString() : null; }
+        public String getTarget() { return url != null ? url.toString() : host + ":" + port; }
+    }
+
+    // === Building ===
+
+    public static final class Builder {
+        private final String name;
+        private Attribution attribution = MOD_ID;
+        private Policy policy;
+        private long keywords;
+        private boolean detectJwt;
+        private Predicate<String> skipScan;
+        private Verdict verdict;
+        private boolean gatedVerdictOnly;
+        private Audit audit;
+
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder attribution(Attribution a) { this.attribution = a; return this; }
+        public Builder policy(Policy p) { this.policy = p; return this; }
+        /** keywords: IndicatorMatcher.DEFAULT bits; 0 and no JWT detection turns the scan stage off. */
+        public Builder scan(long keywords, boolean detectJwt) { this.keywords = keywords; this.detectJwt = detectJwt; return this; }
+        /** Hosts whose payloads are not scanned (the other stages still apply). */
+        public Builder skipScanFor(Predicate<String> host) { this.skipScan = host; return this; }
+        public Builder verdict(Verdict v) { this.verdict = v; return this; }
+        /** Verdict for gated bodies only; pass-through streams (buffered HTTP, sockets) are just audited. */
+        public Builder gatedVerdictOnly() { this.gatedVerdictOnly = true; return this; }
+        public Builder audit(Audit a) { this.audit = a; return this; }
+
+        public InspectionPipeline build() {
+            return new InspectionPipeline(this);
+        }
+    }
+}
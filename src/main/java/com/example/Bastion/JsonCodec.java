@@ -0,0 +1,367 @@
+package com.example.bastion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JsonCodec
+ * - Streaming tokenizer (Tokenizer) and writer (Emitter) for Bastion's config and state files.
+ * - Reads one char at a time from a buffered Reader; memory is bounded by the longest single token.
+ * - Full string escapes both ways (\" \\ \/ \b \f \n \r \t \\uXXXX).
+ * - State snapshot v2 keeps decisions in "mods" / "hosts" / "urls" sections so kinds are
+ *   never guessed; v1 (one flat object) is still read.
+ */
+public final class JsonCodec {
+
+    public static final int STATE_VERSION = 2;
+
+    private JsonCodec() {}
+
+    // === Flat objects (bastion_config.json) ===
+
+    /** Read a flat object; scalar values come back as text, nested values are skipped. */
+    public static Map<String, String> readFlat(File file) throws IOException {
+        Map<String, String> map = new LinkedHashMap<>();
+        try (Tokenizer t = new Tokenizer(open(file))) {
+            if (t.isEmpty()) return map;
+            t.beginObject();
+            while (t.hasNext()) {
+                String name = t.nextName();
+                if (t.peekContainer()) t.skipValue();
+                else map.put(name, t.nextScalar());
+            }
+            t.endObject();
+        }
+        return map;
+    }
+
+    public static void writeFlat(Map<String, String> map, File file) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            Emitter e = new Emitter(w);
+            e.beginObject();
+            for (Map.Entry<String, String> entry : map.entrySet()) e.name(entry.getKey()).value(entry.getValue());
+            e.endObject();
+        }
+    }
+
+    // === Decision state (bastion_state.json) ===
+
+    /**
+     * Stream the snapshot into state, one entry at a time.
+     * v1 files (flat "key":"STATE") are classified with legacyKind.
+     * @return number of entries read
+     */
+    public static int readState(File file, Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state,
+                                java.util.function.Function<String, DecisionTable.Kind> legacyKind) throws IOException {
+        int count = 0;
+        try (Tokenizer t = new Tokenizer(open(file))) {
+            if (t.isEmpty()) return 0;
+            t.beginObject();
+            while (t.hasNext()) {
+                String name = t.nextName();
+                DecisionTable.Kind section = sectionKind(name);
+                if (section != null && t.peekContainer()) {
+                    t.beginObject();
+                    while (t.hasNext()) {
+                        String key = t.nextName();
+                        state.get(section).put(key, BastionCore.DecisionState.valueOf(t.nextScalar()));
+                        count++;
+                    }
+                    t.endObject();
+                } else if ("version".equals(name)) {
+                    t.nextScalar();
+                } else if (t.peekContainer()) {
+                    t.skipValue();
+                } else {
+                    // v1: flat key -> state
+                    String key = DecisionTable.normalize(name);
+                    state.get(legacyKind.apply(key)).put(key, BastionCore.DecisionState.valueOf(t.nextScalar()));
+                    count++;
+                }
+            }
+            t.endObject();
+        }
+        return count;
+    }
+
+    public static void writeState(Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state, Writer w) throws IOException {
+        Emitter e = new Emitter(w);
+        e.beginObject();
+        e.name("version").value(STATE_VERSION);
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) {
+            e.name(sectionName(kind)).beginObject();
+            Map<String, BastionCore.DecisionState> m = state.get(kind);
+            if (m != null) {
+                for (Map.Entry<String, BastionCore.DecisionState> entry : m.entrySet()) {
+                    e.name(entry.getKey()).value(entry.getValue().name());
+                }
+            }
+            e.endObject();
+        }
+        e.endObject();
+        w.flush();
+    }
+
+    private static String sectionName(DecisionTable.Kind kind) {
+        switch (kind) {
+            case MOD:  return "mods";
+            case HOST: return "hosts";
+            default:   return "urls";
+        }
+    }
+
+    private static DecisionTable.Kind sectionKind(String name) {
+        switch (name) {
+            case "mods":  return DecisionTable.Kind.MOD;
+            case "hosts": return DecisionTable.Kind.HOST;
+            case "urls":  return DecisionTable.Kind.URL;
+            default:      return null;
+        }
+    }
+
+    private static Reader open(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    // === Tokenizer ===
+
+    public static final class Tokenizer implements Closeable {
+        private final Reader in;
+        private final StringBuilder buf = new StringBuilder(64);
+        private int peeked = -2; // -2: nothing buffered
+        private long pos;
+
+        public Tokenizer(Reader in) {
+            this.in = in;
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            pos++;
+            return c;
+        }
+
+        private int peekNonWs() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') read();
+            return c;
+        }
+
+        private void expect(char want) throws IOException {
+            int c = peekNonWs();
+            if (c != want) throw error("expected '" + want + "'", c);
+            read();
+        }
+
+        private IOException error(String msg, int c) {
+            return new IOException("JSON " + msg + " but got " + (c < 0 ? "EOF" : "'" + (char) c + "'") + " at char " + pos);
+        }
+
+        /** True if the input holds nothing but whitespace. */
+        public boolean isEmpty() throws IOException {
+            return peekNonWs() < 0;
+        }
+
+        public void beginObject() throws IOException { expect('{'); }
+        public void endObject() throws IOException { expect('}'); }
+        public void beginArray() throws IOException { expect('['); }
+        public void endArray() throws IOException { expect(']'); }
+
+        /** True if another member follows in the current object or array (consumes the ','). */
+        public boolean hasNext() throws IOException {
+            int c = peekNonWs();
+            if (c == '}' || c == ']') return false;
+            if (c == ',') {
+                read();
+                c = peekNonWs();
+            }
+            if (c < 0) throw error("expected value", c);
+            return true;
+        }
+
+        public String nextName() throws IOException {
+            if (peekNonWs() != '"') throw error("expected name", peek());
+            String name = readString();
+            expect(':');
+            return name;
+        }
+
+        public boolean peekContainer() throws IOException {
+            int c = peekNonWs();
+            return c == '{' || c == '[';
+        }
+
+        /** Next string, number, true or false as text; JSON null comes back as null. */
+        public String nextScalar() throws IOException {
+            int c = peekNonWs();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[' || c < 0) throw error("expected scalar", c);
+            buf.setLength(0);
+            while ((c = peek()) >= 0 && c != ',' && c != '}' && c != ']'
+                    && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                buf.append((char) read());
+            }
+            String literal = buf.toString();
+            return "null".equals(literal) ? null : literal;
+        }
+
+        public void skipValue() throws IOException {
+            int c = peekNonWs();
+            if (c == '{' || c == '[') {
+                char close = (c == '{') ? '}' : ']';
+                read();
+                while (hasNext()) {
+                    if (c == '{') nextName();
+                    skipValue();
+                }
+                expect(close);
+            } else {
+                nextScalar();
+            }
+        }
+
+        private String readString() throws IOException {
+            read(); // opening quote
+            buf.setLength(0);
+            while (true) {
+                int c = read();
+                if (c < 0) throw error("unterminated string", c);
+                if (c == '"') return buf.toString();
+                if (c != '\\') { buf.append((char) c); continue; }
+
+                int e = read();
+                switch (e) {
+                    case '"':  buf.append('"'); break;
+                    case '\\': buf.append('\\'); break;
+                    case '/':  buf.append('/'); break;
+                    case 'b':  buf.append('\b'); break;
+                    case 'f':  buf.append('\f'); break;
+                    case 'n':  buf.append('\n'); break;
+                    case 'r':  buf.append('\r'); break;
+                    case 't':  buf.append('\t'); break;
+                    case 'u': {
+                        int v = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int d = Character.digit(read(), 16);
+                            if (d < 0) throw error("bad \\u escape", d);
+                            v = (v << 4) | d;
+                        }
+                        buf.append((char) v);
+                        break;
+                    }
+                    default: throw error("bad escape", e);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // === Emitter ===
+
+    public static final class Emitter {
+        private final Writer out;
+        private int depth;
+        private boolean first = true;
+
+        public Emitter(Writer out) {
+            this.out = out;
+        }
+
+        public Emitter beginObject() throws IOException {
+            out.write('{');
+            depth++;
+            first = true;
+            return this;
+        }
+
+        public Emitter endObject() throws IOException {
+            depth--;
+            if (!first) newline();
+            out.write('}');
+            first = false;
+            if (depth == 0) out.write('\n');
+            return this;
+        }
+
+        public Emitter beginArray() throws IOException {
+            out.write('[');
+            depth++;
+            first = true;
+            return this;
+        }
+
+        public Emitter endArray() throws IOException {
+            depth--;
+            if (!first) newline();
+            out.write(']');
+            first = false;
+            return this;
+        }
+
+        /** One string element of the current array. */
+        public Emitter element(String value) throws IOException {
+            if (!first) out.write(',');
+            newline();
+            return value(value);
+        }
+
+        public Emitter name(String name) throws IOException {
+            if (!first) out.write(',');
+            newline();
+            string(name);
+            out.write(": ");
+            first = true; // the value that follows needs no comma
+            return this;
+        }
+
+        public Emitter value(String value) throws IOException {
+            if (value == null) out.write("null");
+            else string(value);
+            first = false;
+            return this;
+        }
+
+        public Emitter value(long value) throws IOException {
+            out.write(Long.toString(value));
+            first = false;
+            return this;
+        }
+
+        private void newline() throws IOException {
+            out.write('\n');
+            for (int i = 0; i < depth; i++) out.write("  ");
+        }
+
+        private void string(String s) throws IOException {
+            out.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':  out.write("\\\""); break;
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    case '\r': out.write("\\r"); break;
+                    case '\t': out.write("\\t"); break;
+                    case '\b': out.write("\\b"); break;
+                    case '\f': out.write("\\f"); break;
+                    default:
+                        if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                        else out.write(c);
+                }
+            }
+            out.write('"');
+        }
+    }
+}
@@ -21,6 +21,11 @@ public class ModCaller {
      *   3. Raw class name (last resort).
      */
     public static String resolveModName(String className) {
+        return CallerAttributionCache.displayNameFor(className);
+    }
+
+    // Uncached lookup; CallerAttributionCache memoizes the result per class.
+    static String describe(String className) {
         String jarName = null;
         try {
             // === 1. ProtectionDomain → actual JAR file ===
@@ -0,0 +1,145 @@
+package com.example.bastion;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ModFingerprintIndex
+ * - Lists mods/ once and keeps a SHA-256 digest per jar.
+ * - refresh() re-lists the folder and only rehashes jars whose size or mtime changed.
+ * - fingerprint(mod) is answered from memory (hash lookup), never from disk.
+ * - seed() preloads digests persisted by ScanCache, so the first refresh() only hashes changed jars.
+ */
+public class ModFingerprintIndex {
+
+    public static final String NO_HASH = "nohash";
+
+    private final File modsDir;
+    private volatile Snapshot snapshot = new Snapshot(Collections.<Entry>emptyList());
+
+    public ModFingerprintIndex(File modsDir) {
+        this.modsDir = modsDir;
+    }
+
+    // === Indexed jar ===
+    public static final class Entry {
+        private final File file;
+        private final String lowerName;
+        private final long size;
+        private final long lastModified;
+        private final String sha256;
+
+        Entry(File file, long size, long lastModified, String sha256) {
+            this.file = file;
+            this.lowerName = file.getName().toLowerCase(Locale.ROOT);
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        public File getFile() { return file; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public String getSha256() { return sha256; }
+
+        boolean isCurrent(File f) {
+            return f.length() == size && f.lastModified() == lastModified;
+        }
+    }
+
+    // One listing plus the lookups already answered against it; replaced wholesale on refresh.
+    private static final class Snapshot {
+        final List<Entry> entries;
+        final Map<String, Entry> byPath = new HashMap<>();
+        final Map<String, String> memo = new ConcurrentHashMap<>();
+
+        Snapshot(List<Entry> entries) {
+            this.entries = entries;
+            for (Entry e : entries) byPath.put(e.file.getAbsolutePath(), e);
+        }
+    }
+
+    // === Building ===
+
+    /**
+     * Re-list mods/ and rebuild the index.
+     * Digests are reused for jars whose size and mtime are unchanged.
+     * @return number of jars that had to be (re)hashed
+     */
+    public synchronized int refresh() {
+        Snapshot old = snapshot;
+
+        File[] jars = modsDir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).endsWith(".jar"));
+        List<Entry> entries = new ArrayList<>();
+        int hashed = 0;
+        if (jars != null) {
+            for (File jar : jars) {
+                if (!jar.isFile()) continue;
+                Entry prev = old.byPath.get(jar.getAbsolutePath());
+                if (prev != null && prev.isCurrent(jar)) {
+                    entries.add(prev);
+                } else {
+                    entries.add(new Entry(jar, jar.length(), jar.lastModified(), BastionCore.sha256(jar)));
+                    hashed++;
+                }
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableList(entries));
+        return hashed;
+    }
+
+    /** Preload known digests (from ScanCache) before the first refresh(); ignored once the index is built. */
+    public synchronized void seed(Collection<ScanCache.Entry> known) {
+        if (!snapshot.entries.isEmpty()) return;
+        List<Entry> entries = new ArrayList<>();
+        for (ScanCache.Entry k : known) {
+            entries.add(new Entry(new File(modsDir, k.getFileName()), k.getSize(), k.getLastModified(), k.getSha256()));
+        }
+        snapshot = new Snapshot(Collections.unmodifiableList(entries));
+    }
+
+    // === Lookups (no disk I/O) ===
+
+    /** Index entry for this jar if it is still current (same size and mtime), else null. */
+    public Entry entryFor(File jar) {
+        Entry e = snapshot.byPath.get(jar.getAbsolutePath());
+        return (e != null && e.isCurrent(jar)) ? e : null;
+    }
+
+    /**
+     * SHA-256 of the first jar whose file name contains the mod name (case-insensitive),
+     * or {@link #NO_HASH} if none matches.
+     */
+    public String fingerprint(String mod) {
+        if (mod == null) return NO_HASH;
+        Snapshot s = snapshot;
+        String hash = s.memo.get(mod);
+        if (hash != null) return hash;
+
+        Entry e = find(s, mod);
+        hash = (e != null) ? e.sha256 : NO_HASH;
+        s.memo.put(mod, hash);
+        return hash;
+    }
+
+    /** Jar backing the given mod name, or null. */
+    public File jarFor(String mod) {
+        if (mod == null) return null;
+        Entry e = find(snapshot, mod);
+        return e != null ? e.file : null;
+    }
+
+    public List<Entry> entries() {
+        return snapshot.entries;
+    }
+
+    private static Entry find(Snapshot s, String mod) {
+        String key = mod.toLowerCase(Locale.ROOT);
+        for (Entry e : s.entries) {
+            if (e.lowerName.contains(key)) return e;
+        }
+        return null;
+    }
+}
@@ -4,22 +4,80 @@ import com.example.bastion.ui.ToastManager;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static com.example.bastion.IndicatorMatcher.bit;
 
 /**
  * ModScanner
  * Scans all mods in /mods at startup.
  * - Reports ALL possible exfiltration indicators (UUID, session, tokens, webhooks).
+ * - Indicators come from each class's constant pool only (ClassConstantScanner): UTF8/String
+ *   constants through IndicatorMatcher, plus member refs owned by network / Session classes.
+ * - Nested .jar/.zip entries are streamed through ZipInputStream (bounded depth, entries and
+ *   inflated bytes per jar, each byte counted once); their findings name the nested path.
  * - Always inventories ALL .jar files in mods folder.
  * - Enforcement/approval is handled by BastionCore.
+ * - Jars are analysed in parallel on a small fixed pool, each opened once per pass;
+ *   results are reported in file order with per-jar and total timing.
+ * - Results are cached per jar SHA-256 (ScanCache); unchanged jars are not reopened.
+ *   Bump SCANNER_VERSION whenever analysis changes so stale results are rescanned.
+ * - At launch the scan runs once in the background (startBackgroundScan, from the coremod).
+ *   Each jar's findings are published to BastionCore as soon as it finishes; prompts wait for
+ *   onClientReady() since GuiSessionPrompt needs a Minecraft instance.
+ * - After that, ModsDirectoryWatcher feeds new or modified jars to scanJars().
  */
 public class ModScanner {
 
-    private static final Pattern URL_PATTERN = Pattern.compile("https?://[a-zA-Z0-9./?=_-]+");
+    public static final int SCANNER_VERSION = 5;
+
+    private static final long ID_MARKERS = bit(IndicatorMatcher.UUID) | bit(IndicatorMatcher.USERID);
+    private static final long SEND_VERBS = bit(IndicatorMatcher.POST) | bit(IndicatorMatcher.SEND) | bit(IndicatorMatcher.UPLOAD);
+
+    // One background scan per launch; prompts are released once the client exists
+    private static final AtomicReference<CompletableFuture<Void>> BACKGROUND = new AtomicReference<>();
+    private static final CompletableFuture<Void> CLIENT_READY = new CompletableFuture<>();
+
+    // === Entry points ===
+
+    /** Start the launch scan on a daemon thread; later calls return the same future. */
+    public static CompletableFuture<Void> startBackgroundScan() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!BACKGROUND.compareAndSet(null, done)) return BACKGROUND.get();
+
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                scanMods();
+                done.complete(null);
+            } catch (Throwable e) {
+                BastionCore.getInstance().log(BastionCore.LogLevel.ERROR, "[BastionScan] Background scan failed: " + e);
+                done.completeExceptionally(e);
+            } finally {
+                BastionCore core = BastionCore.getInstance();
+                core.markStaticScanComplete();
+                core.log("[BastionScan] Background scan finished in " + (System.nanoTime() - start) / 1_000_000L + " ms.");
+
+                // From here on, jars added or replaced at runtime are picked up incrementally
+                if (core.isWatchModsDir()) core.getModsWatcher().start();
+            }
+        }, "Bastion-ModScan");
+        t.setDaemon(true);
+        t.start();
+        return done;
+    }
+
+    /** Called from mod init once Minecraft is up; releases the queued scan prompts. */
+    public static void onClientReady() {
+        CLIENT_READY.complete(null);
+    }
 
-    // === Entry point ===
     public static void scanMods() {
         File modsDir = new File("mods");
         File[] files = modsDir.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".jar"));
@@ -30,37 +88,198 @@ public class ModScanner {
 
         BastionCore core = BastionCore.getInstance();
         core.log("[BastionScan] Starting mod scan...");
-        core.sendWebhook("[BastionScan] Starting mod scan...");
+        core.sendWebhook("[BastionScan] Starting mod scan...", BastionCore.Severity.LOW);
+        scanAndReport(files, true);
+    }
+
+    /** Incremental pass over jars that appeared or changed at runtime (ModsDirectoryWatcher). */
+    public static void scanJars(List<File> jars) {
+        if (jars.isEmpty()) return;
+        BastionCore.getInstance().log("[BastionScan] Rescanning " + jars.size() + " new/changed jar(s)...");
+        scanAndReport(jars.toArray(new File[0]), false);
+    }
 
-        // First, run analysis on each mod
-        for (File mod : files) {
-            scanSingleMod(mod);
+    private static void scanAndReport(File[] files, boolean full) {
+        BastionCore core = BastionCore.getInstance();
+
+        // First, analyse every jar in parallel (one open per jar), then report in file order
+        long start = System.nanoTime();
+        List<JarScan> scans = scanAll(files);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        long busyMillis = 0;
+        int cached = 0;
+        List<String> present = new ArrayList<>(scans.size());
+        for (JarScan scan : scans) {
+            busyMillis += scan.millis;
+            if (scan.sha256 != null) present.add(scan.sha256);
+            if (scan.cached) {
+                cached++;
+                core.log("[BastionScan] " + scan.jar.getName() + ": cached (" + scan.classes + " classes, "
+                        + scan.findings.size() + " findings)");
+            } else {
+                core.log("[BastionScan] " + scan.jar.getName() + ": " + scan.classes + " classes ("
+                        + (scan.bytes / 1024) + " KiB examined), " + scan.findings.size() + " findings in " + scan.millis + " ms");
+            }
+        }
+        core.log("[BastionScan] Scanned " + scans.size() + " jars in " + wallMillis + " ms wall ("
+                + busyMillis + " ms across " + poolSize(files.length) + " threads)");
+        if (full) {
+            core.log("[BastionScan] " + (cached == scans.size() ? "Warm" : cached == 0 ? "Cold" : "Partially warm")
+                    + " scan: " + cached + "/" + scans.size() + " jars from cache, " + wallMillis + " ms");
+        }
+
+        // A full pass knows every jar in mods/; an incremental one must not evict the rest
+        ScanCache cache = core.getScanCache();
+        if (full) cache.retainOnly(present);
+        try {
+            cache.save();
+        } catch (IOException e) {
+            core.log(BastionCore.LogLevel.WARN, "[BastionScan] Could not save scan cache: " + e.getMessage());
         }
 
-        // Then always inventory dump ALL mods
-        core.sendWebhook("[BastionScan] Inventory complete:");
-        for (File mod : files) {
-            String id = getModId(mod);
-            String name = mod.getName();
+        // Then always inventory dump the scanned mods
+        core.sendWebhook(full ? "[BastionScan] Inventory complete:" : "[BastionScan] New/changed mods:", BastionCore.Severity.LOW);
+        for (JarScan scan : scans) {
+            String id = scan.modId;
+            String name = scan.jar.getName();
             if (id == null || id.isEmpty()) id = name.replace(".jar", "");
             core.log("[BastionScan]  - " + id + " (file: " + name + ")");
-            core.sendWebhook("[BastionScan]  - " + id + " (file: " + name + ")");
+            core.sendWebhook("[BastionScan]  - " + id + " (file: " + name + ")", BastionCore.Severity.LOW);
+        }
+
+        // Prompts need the client; runs now if it is already up
+        CLIENT_READY.thenRun(() -> {
+            for (JarScan scan : scans) report(scan);
+        });
+    }
+
+    // === Parallel pass ===
+
+    /** Result of one pass over one jar. */
+    static final class JarScan {
+        final File jar;
+        String sha256;
+        boolean cached;
+        String modId;
+        boolean self;
+        List<String> findings = Collections.emptyList();
+        int classes;
+        long bytes;   // bytes examined (constant pools, plus whole entries that weren't classes)
+        long millis;
+
+        JarScan(File jar) {
+            this.jar = jar;
         }
     }
 
-    private static void scanSingleMod(final File mod) {
+    // Leave one core to the FML loading thread
+    private static int poolSize(int jars) {
+        return Math.max(1, Math.min(jars, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    private static List<JarScan> scanAll(File[] files) {
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize(files.length), new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Bastion-Scan-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
         try {
-            final String modId = getModId(mod);
-            final String modName = mod.getName();
+            List<Future<JarScan>> futures = new ArrayList<>(files.length);
+            for (File jar : files) futures.add(pool.submit(() -> publish(scanJar(jar))));
 
-            // Skip Bastion itself
-            if (BastionCore.getInstance().isSelf(modId) || modName.toLowerCase(Locale.ROOT).contains("bastion")) {
-                return;
+            List<JarScan> scans = new ArrayList<>(files.length);
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    scans.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    scans.add(new JarScan(files[i]));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return scans;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Make a finished jar's findings visible to enforcement right away
+    private static JarScan publish(JarScan scan) {
+        if (!scan.self && scan.modId != null) {
+            BastionCore.getInstance().publishScanResult(scan.modId, scan.jar, scan.findings);
+        }
+        return scan;
+    }
+
+    private static JarScan scanJar(File jar) {
+        JarScan scan = new JarScan(jar);
+        long start = System.nanoTime();
+        BastionCore core = BastionCore.getInstance();
+
+        // Same size/mtime as the index: reuse its digest, otherwise hash now
+        ModFingerprintIndex.Entry indexed = core.getFingerprintIndex().entryFor(jar);
+        long size = indexed != null ? indexed.getSize() : jar.length();
+        long mtime = indexed != null ? indexed.getLastModified() : jar.lastModified();
+        String sha = indexed != null ? indexed.getSha256() : BastionCore.sha256(jar);
+        if (!ModFingerprintIndex.NO_HASH.equals(sha)) scan.sha256 = sha;
+
+        ScanCache.Entry hit = scan.sha256 != null ? core.getScanCache().get(scan.sha256, SCANNER_VERSION) : null;
+        if (hit != null) {
+            scan.cached = true;
+            scan.modId = hit.getModId();
+            scan.classes = hit.getClasses();
+            scan.findings = hit.getFindings();
+            scan.self = isSelf(core, scan.modId, jar);
+            if (!hit.getFileName().equals(jar.getName()) || hit.getLastModified() != mtime) {
+                // Renamed or touched: same content, refresh the stored file details
+                core.getScanCache().put(new ScanCache.Entry(sha, jar.getName(), size, mtime, SCANNER_VERSION,
+                        hit.getModId(), hit.getClasses(), hit.getFindings()));
             }
+            scan.millis = (System.nanoTime() - start) / 1_000_000L;
+            return scan;
+        }
+
+        boolean complete = false;
+        try (ZipFile zip = new ZipFile(jar)) {
+            scan.modId = readModId(zip, jar);
+
+            // Skip Bastion itself
+            scan.self = isSelf(core, scan.modId, jar);
+            if (!scan.self) analyzeJar(zip, scan);
+            complete = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (scan.modId == null) scan.modId = jar.getName().replace(".jar", "");
+        }
+
+        // Only cache full passes; a jar that failed to open is retried next launch
+        if (complete && scan.sha256 != null) {
+            core.getScanCache().put(new ScanCache.Entry(scan.sha256, jar.getName(), size, mtime, SCANNER_VERSION,
+                    scan.modId, scan.classes, scan.findings));
+        }
+        scan.millis = (System.nanoTime() - start) / 1_000_000L;
+        return scan;
+    }
+
+    private static boolean isSelf(BastionCore core, String modId, File jar) {
+        return core.isSelf(modId) || jar.getName().toLowerCase(Locale.ROOT).contains("bastion");
+    }
 
+    // === Reporting (caller thread, file order) ===
+    private static void report(JarScan scan) {
+        try {
+            if (scan.self || scan.findings.isEmpty()) return;
+
+            final String modId = scan.modId;
+            final String modName = scan.jar.getName();
+            final List<String> findings = scan.findings;
             BastionCore core = BastionCore.getInstance();
-            List<String> findings = analyzeJar(mod);
-            if (findings.isEmpty()) return;
 
             final String label = (modId != null ? modId : modName) + " (file: " + modName + ")";
             final String msg = "[StaticScan] Suspicious indicators in " + label + ": " + findings;
@@ -71,7 +290,7 @@ public class ModScanner {
                 core.fireSession(modId, msg);
             }
 
-            core.requestStaticScanApproval(modId, mod, findings)
+            core.requestStaticScanApproval(modId, scan.jar, findings)
                     .thenAccept(allowed -> {
                         if (allowed) {
                             core.log("[BastionScan] User approved " + label);
@@ -86,76 +305,215 @@ public class ModScanner {
     }
 
     // === JAR Analysis ===
-    private static List<String> analyzeJar(File jar) {
+
+    // Nested archives (jar-in-jar, shaded zips) are streamed, never extracted; limits are per top-level jar.
+    // MAX_NESTED_BYTES counts leaf bytes only: the entries inside nested archives, plus anything an inner
+    // archive leaves unread at its end. An archive's own bytes are not counted again on top of them.
+    static final int MAX_NESTED_DEPTH = 3;
+    static final int MAX_NESTED_ENTRIES = 20_000;
+    static final long MAX_NESTED_BYTES = 64L << 20;
+
+    private static void analyzeJar(ZipFile zip, JarScan scan) throws IOException {
         List<String> findings = new ArrayList<>();
+        EntryBuffer buf = new EntryBuffer();
+        ClassConstantScanner cp = new ClassConstantScanner();
+        NestedBudget budget = new NestedBudget();
 
-        try (ZipFile zip = new ZipFile(jar)) {
-            Enumeration<? extends ZipEntry> entries = zip.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                if (!entry.getName().endsWith(".class")) continue;
-
-                String text = readEntry(zip, entry);
-
-                if (detectWebhook(text)) findings.add("Discord webhook endpoint");
-                if (BastionCore.containsTokenData(text)) findings.add("Session/token markers");
-
-                if (text.contains("uuid") || text.contains("userid")) {
-                    if (text.contains("discord.com/api/webhooks") || text.contains("discordapp.com/api/webhooks")) {
-                        findings.add("Potential ID exfiltration");
-                    } else if ((text.contains("http") || text.contains("https")) &&
-                            (text.contains("post") || text.contains("send") || text.contains("upload"))) {
-                        findings.add("Potential ID exfiltration");
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+
+            if (isArchive(name)) {
+                if (budget.exhausted) continue;
+                try (InputStream is = zip.getInputStream(entry)) {
+                    scanNested(is, name, 1, scan, cp, budget, buf, findings);
+                } catch (NestedLimitException e) {
+                    // Whatever sits past the limit is unscanned, which is worth a prompt in itself
+                    budget.exhausted = true;
+                    findings.add("Nested archive exceeds scan limits in " + name + " (" + e.getMessage() + ")");
+                } catch (IOException e) {
+                    // Not a readable archive after all; nothing to report
+                }
+                continue;
+            }
+            if (!name.endsWith(".class")) continue;
+            scan.classes++;
+
+            // Constant pool only; anything that doesn't parse as a class gets the flat byte pass
+            boolean parsed;
+            try (InputStream is = zip.getInputStream(entry)) {
+                parsed = cp.scan(is);
+            } catch (IOException e) {
+                parsed = false;
+            }
+            if (!parsed) {
+                buf.read(zip, entry);
+                cp.scanFlat(buf.data, 0, buf.length);
+            }
+            scan.bytes += cp.bytesRead();
+            addFindings(cp, null, findings);
+        }
+        scan.findings = findings;
+    }
+
+    /** One archive inside the jar, read through ZipInputStream; path is "outer.jar!/inner.jar" style. */
+    private static void scanNested(InputStream in, String path, int depth, JarScan scan, ClassConstantScanner cp,
+                                   NestedBudget budget, EntryBuffer buf, List<String> findings) throws IOException {
+        if (depth > MAX_NESTED_DEPTH) throw new NestedLimitException("depth at " + path);
+
+        // Closing releases this level's Inflater now; BudgetedInputStream keeps the outer stream open
+        try (ZipInputStream zis = new ZipInputStream(new BudgetedInputStream(in, null))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (++budget.entries > MAX_NESTED_ENTRIES) throw new NestedLimitException("entries");
+                String name = entry.getName();
+
+                // Leaf bytes go through the budget, including what we skip; an inner archive's bytes are
+                // counted as its own entries inflate, and only what it leaves unread is counted here
+                InputStream data = new BudgetedInputStream(zis, budget);
+                if (isArchive(name)) {
+                    try {
+                        scanNested(zis, path + "!/" + name, depth + 1, scan, cp, budget, buf, findings);
+                    } catch (ZipException e) {
+                        // corrupt inner archive: skip it
+                    }
+                } else if (name.endsWith(".class")) {
+                    scan.classes++;
+                    // Buffered so a class that doesn't parse still gets the flat byte pass, as at top level
+                    buf.read(data, -1);   // a nested header's size is not trusted for the allocation
+                    boolean parsed;
+                    try {
+                        parsed = cp.scan(new ByteArrayInputStream(buf.data, 0, buf.length));
+                    } catch (IOException e) {
+                        parsed = false;
                     }
+                    if (parsed) {
+                        scan.bytes += cp.bytesRead();
+                    } else {
+                        cp.scanFlat(buf.data, 0, buf.length);
+                        scan.bytes += buf.length;
+                    }
+                    addFindings(cp, path, findings);
                 }
+                drain(data);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        }
+    }
+
+    private static void addFindings(ClassConstantScanner cp, String nestedPath, List<String> findings) {
+        String where = (nestedPath != null) ? " in " + nestedPath : "";
+        long hits = cp.hits();
+        boolean network = (cp.owners() & ClassConstantScanner.OWNER_NETWORK) != 0;
+
+        if ((hits & IndicatorMatcher.WEBHOOK) != 0) findings.add("Discord webhook endpoint" + where);
+        if (cp.tokenFound()) findings.add("Session/token markers" + where);
+        if (network && (cp.owners() & ClassConstantScanner.OWNER_SESSION) != 0) {
+            findings.add("Minecraft Session access with network I/O" + where);
         }
 
-        return findings;
+        if ((hits & ID_MARKERS) != 0) {
+            if ((hits & IndicatorMatcher.WEBHOOK) != 0) {
+                findings.add("Potential ID exfiltration" + where);
+            } else if (network || ((hits & bit(IndicatorMatcher.HTTP)) != 0 && (hits & SEND_VERBS) != 0)) {
+                findings.add("Potential ID exfiltration" + where);
+            }
+        }
     }
 
-    private static String readEntry(ZipFile zip, ZipEntry entry) throws IOException {
-        try (InputStream is = zip.getInputStream(entry)) {
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            byte[] tmp = new byte[4096];
-            int n;
-            while ((n = is.read(tmp)) != -1) buffer.write(tmp, 0, n);
-            return new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+    private static boolean isArchive(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jar") || lower.endsWith(".zip");
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] skip = new byte[8192];
+        while (in.read(skip) >= 0) { /* counted by the budget */ }
+    }
+
+    // Shared by every nesting level of one top-level jar
+    private static final class NestedBudget {
+        long bytes;
+        int entries;
+        boolean exhausted;
+    }
+
+    static final class NestedLimitException extends IOException {
+        NestedLimitException(String where) {
+            super(where);
         }
     }
 
-    private static boolean detectWebhook(String text) {
-        if (text.contains("discord.com/api/webhooks") || text.contains("discordapp.com/api/webhooks"))
-            return true;
+    // Counts inflated bytes against the budget (if any); close() leaves the underlying stream open
+    private static final class BudgetedInputStream extends FilterInputStream {
+        private final NestedBudget budget;
+
+        BudgetedInputStream(InputStream in, NestedBudget budget) {
+            super(in);
+            this.budget = budget;
+        }
+
+        private void count(long n) throws IOException {
+            if (budget != null && (budget.bytes += n) > MAX_NESTED_BYTES) throw new NestedLimitException("bytes");
+        }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
 
-        Matcher m = URL_PATTERN.matcher(text);
-        while (m.find()) {
-            String found = m.group();
-            if (found.contains("discord.com/api/webhooks") || found.contains("discordapp.com/api/webhooks"))
-                return true;
+        @Override public long skip(long n) throws IOException {
+            byte[] tmp = new byte[(int) Math.min(n, 8192)];
+            int r = read(tmp, 0, tmp.length);
+            return Math.max(r, 0);
         }
-        return false;
+
+        @Override public void close() {}
     }
 
-    private static String getModId(File mod) {
-        try (ZipFile zip = new ZipFile(mod)) {
+    // One growable buffer per jar pass instead of a ByteArrayOutputStream + copy per entry
+    private static final class EntryBuffer {
+        byte[] data = new byte[8192];
+        int length;
+
+        void read(ZipFile zip, ZipEntry entry) throws IOException {
+            try (InputStream is = zip.getInputStream(entry)) {
+                read(is, entry.getSize());
+            }
+        }
+
+        /** Read is to its end (does not close it); size is a hint, -1 if unknown. */
+        void read(InputStream is, long size) throws IOException {
+            if (size > data.length && size <= Integer.MAX_VALUE - 8) data = new byte[(int) size];
+            length = 0;
+            int n;
+            while ((n = is.read(data, length, data.length - length)) != -1) {
+                length += n;
+                if (length == data.length) data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+    }
+
+    private static String readModId(ZipFile zip, File mod) {
+        try {
             ZipEntry entry = zip.getEntry("mcmod.info");
             if (entry != null) {
-                try (InputStream is = zip.getInputStream(entry)) {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    byte[] buf = new byte[4096];
-                    int n;
-                    while ((n = is.read(buf)) != -1) baos.write(buf, 0, n);
-                    String json = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-                    if (json.contains("\"modid\"")) {
-                        int idx = json.indexOf("\"modid\"");
-                        int start = json.indexOf(":", idx) + 1;
-                        int end = json.indexOf(",", start);
-                        if (end == -1) end = json.length();
-                        return json.substring(start, end).replaceAll("[^a-zA-Z0-9_.-]", "").trim();
-                    }
+                EntryBuffer buf = new EntryBuffer();
+                buf.read(zip, entry);
+                String json = new String(buf.data, 0, buf.length, StandardCharsets.UTF_8);
+                if (json.contains("\"modid\"")) {
+                    int idx = json.indexOf("\"modid\"");
+                    int start = json.indexOf(":", idx) + 1;
+                    int end = json.indexOf(",", start);
+                    if (end == -1) end = json.length();
+                    return json.substring(start, end).replaceAll("[^a-zA-Z0-9_.-]", "").trim();
                 }
             }
         } catch (Exception ignored) {}
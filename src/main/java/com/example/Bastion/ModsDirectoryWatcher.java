@@ -0,0 +1,157 @@
+package com.example.bastion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * ModsDirectoryWatcher
+ * - WatchService on mods/, so jars dropped or replaced at runtime are caught without relisting
+ *   the folder per connection or rescanning every jar.
+ * - Events are coalesced until the folder has been quiet for SETTLE_MILLIS (a download or copy
+ *   fires many MODIFY events), then the fingerprint index is refreshed once and diffed:
+ *   - new or modified jars are queued for ModScanner.scanJars();
+ *   - deleted or replaced jars have every decision recorded against their old fingerprint
+ *     dropped (BastionCore.forgetFingerprint) and their published findings removed.
+ * - One daemon thread; start() is idempotent and also reconciles anything missed before it ran.
+ */
+public class ModsDirectoryWatcher {
+
+    private static final long SETTLE_MILLIS = 750;
+
+    private final File modsDir;
+    private volatile Thread thread;
+
+    public ModsDirectoryWatcher(File modsDir) {
+        this.modsDir = modsDir;
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        Thread t = new Thread(this::run, "Bastion-ModsWatcher");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    // === Watch loop ===
+
+    private void run() {
+        BastionCore core = BastionCore.getInstance();
+        if (!modsDir.isDirectory()) {
+            core.log("[Watcher] " + modsDir + " does not exist; not watching.");
+            return;
+        }
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            modsDir.toPath().register(ws, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            core.log("[Watcher] Watching " + modsDir.getPath() + "/ for jar changes.");
+
+            // Anything that changed between the startup listing and register() above
+            reconcile();
+
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean jarsChanged = drain(ws.take());
+
+                // Let the burst finish before touching the files
+                WatchKey more;
+                while ((more = ws.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    jarsChanged |= drain(more);
+                }
+                if (jarsChanged) reconcile();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        } catch (IOException e) {
+            core.log(BastionCore.LogLevel.WARN, "[Watcher] Could not watch " + modsDir + ": " + e.getMessage());
+        } catch (Throwable t) {
+            core.log(BastionCore.LogLevel.ERROR, "[Watcher] Stopped: " + t);
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) thread = null;
+            }
+        }
+    }
+
+    /** Consume a key's events; true if any of them concerns a jar (or events were lost). */
+    private static boolean drain(WatchKey key) {
+        boolean jars = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                jars = true;
+                continue;
+            }
+            Object ctx = event.context();
+            if (ctx instanceof Path && ctx.toString().toLowerCase(Locale.ROOT).endsWith(".jar")) jars = true;
+        }
+        key.reset();
+        return jars;
+    }
+
+    // === Reconcile index, decisions and scan results ===
+
+    private void reconcile() {
+        BastionCore core = BastionCore.getInstance();
+        ModFingerprintIndex index = core.getFingerprintIndex();
+
+        Map<String, ModFingerprintIndex.Entry> before = byPath(index.entries());
+        int hashed = index.refresh();
+        Map<String, ModFingerprintIndex.Entry> after = byPath(index.entries());
+        if (hashed == 0 && before.keySet().equals(after.keySet())) return;
+
+        Set<String> live = new HashSet<>();
+        for (ModFingerprintIndex.Entry e : after.values()) live.add(e.getSha256());
+
+        List<File> changed = new ArrayList<>();
+        for (Map.Entry<String, ModFingerprintIndex.Entry> e : after.entrySet()) {
+            ModFingerprintIndex.Entry prev = before.get(e.getKey());
+            if (prev == null) {
+                core.log("[Watcher] New jar: " + e.getValue().getFile().getName());
+                changed.add(e.getValue().getFile());
+            } else if (!prev.getSha256().equals(e.getValue().getSha256())) {
+                core.log("[Watcher] Modified jar: " + e.getValue().getFile().getName());
+                changed.add(e.getValue().getFile());
+                forget(core, prev, live);
+            }
+        }
+        for (Map.Entry<String, ModFingerprintIndex.Entry> e : before.entrySet()) {
+            if (!after.containsKey(e.getKey())) {
+                core.log("[Watcher] Deleted jar: " + e.getValue().getFile().getName());
+                forget(core, e.getValue(), live);
+            }
+        }
+
+        ModScanner.scanJars(changed);
+    }
+
+    private static void forget(BastionCore core, ModFingerprintIndex.Entry old, Set<String> live) {
+        // Another copy of the same content is still installed: its decisions still apply
+        if (live.contains(old.getSha256())) return;
+
+        int dropped = core.forgetFingerprint(old.getSha256());
+        ScanCache.Entry cached = core.getScanCache().get(old.getSha256(), ModScanner.SCANNER_VERSION);
+        if (cached != null) core.forgetScanResult(cached.getModId());
+        if (dropped > 0) {
+            core.log("[Watcher] Dropped " + dropped + " decision(s) for " + old.getFile().getName()
+                    + " (" + old.getSha256().substring(0, Math.min(12, old.getSha256().length())) + ")");
+        }
+    }
+
+    private static Map<String, ModFingerprintIndex.Entry> byPath(List<ModFingerprintIndex.Entry> entries) {
+        Map<String, ModFingerprintIndex.Entry> map = new LinkedHashMap<>();
+        for (ModFingerprintIndex.Entry e : entries) map.put(e.getFile().getAbsolutePath(), e);
+        return map;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bastion;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * PendingDecisions
+ * - Registry of approval prompts that are still waiting on the user.
+ * - Each entry owns at most one timeout on BastionCore's shared timer; it is cancelled
+ *   as soon as the future completes, and the entry removes itself.
+ * - Reports how many prompts are outstanding and how old they are.
+ */
+public class PendingDecisions {
+
+    private final ScheduledExecutorService timer;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public PendingDecisions(ScheduledExecutorService timer) {
+        this.timer = timer;
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Boolean> future;
+        final long createdNanos = System.nanoTime();
+        volatile ScheduledFuture<?> timeout;
+
+        Entry(CompletableFuture<Boolean> future) {
+            this.future = future;
+        }
+    }
+
+    /**
+     * Register a new pending future under key.
+     * @return the future already pending for key, or null if this one was registered
+     */
+    public CompletableFuture<Boolean> register(String key, CompletableFuture<Boolean> future) {
+        Entry entry = new Entry(future);
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing != null) return existing.future;
+
+        // Hooked outside of the map update: the future may already be complete
+        future.whenComplete((r, t) -> {
+            entries.remove(key, entry);
+            ScheduledFuture<?> sf = entry.timeout;
+            if (sf != null) sf.cancel(false);
+        });
+        return null;
+    }
+
+    /**
+     * Run onTimeout after the delay unless the future for key completes first.
+     */
+    public void scheduleTimeout(String key, long delay, TimeUnit unit, Runnable onTimeout) {
+        Entry entry = entries.get(key);
+        if (entry == null) return;
+        ScheduledFuture<?> sf = timer.schedule(() -> {
+            if (!entry.future.isDone()) onTimeout.run();
+        }, delay, unit);
+        entry.timeout = sf;
+        if (entry.future.isDone()) sf.cancel(false);
+    }
+
+    public CompletableFuture<Boolean> remove(String key) {
+        Entry entry = entries.remove(key);
+        return entry != null ? entry.future : null;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // === Reporting ===
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Age of the oldest outstanding prompt in milliseconds, or 0 if none. */
+    public long oldestAgeMillis() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (Entry e : entries.values()) {
+            oldest = Math.max(oldest, now - e.createdNanos);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(oldest);
+    }
+
+    /** Outstanding keys and their age in milliseconds, oldest first. */
+    public Map<String, Long> ages() {
+        long now = System.nanoTime();
+        List<Map.Entry<String, Entry>> list = new ArrayList<>(entries.entrySet());
+        list.sort(Comparator.comparingLong(e -> e.getValue().createdNanos));
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : list) {
+            out.put(e.getKey(), TimeUnit.NANOSECONDS.toMillis(now - e.getValue().createdNanos));
+        }
+        return out;
+    }
+}
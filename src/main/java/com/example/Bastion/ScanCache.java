@@ -0,0 +1,184 @@
+package com.example.bastion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * ScanCache
+ * - Persists ModScanner results per jar in config/bastion/scan_cache.json, keyed by SHA-256.
+ * - Each entry also keeps file name, size and mtime so ModFingerprintIndex can be seeded at startup
+ *   and unchanged jars are neither rehashed nor rescanned.
+ * - Entries written by an older scanner version are ignored (and rewritten on the next scan).
+ * - Saved with temp file + atomic rename; a missing or unreadable cache just means a cold scan.
+ */
+public class ScanCache {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final Map<String, Entry> bySha = new LinkedHashMap<>();
+    private boolean dirty;
+
+    public ScanCache(File file) {
+        this.file = file;
+    }
+
+    // === Cached jar ===
+    public static final class Entry {
+        final String sha256;
+        final String fileName;
+        final long size;
+        final long lastModified;
+        final int scannerVersion;
+        final String modId;
+        final int classes;
+        final List<String> findings;
+
+        public Entry(String sha256, String fileName, long size, long lastModified, int scannerVersion,
+                     String modId, int classes, List<String> findings) {
+            this.sha256 = sha256;
+            this.fileName = fileName;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.scannerVersion = scannerVersion;
+            this.modId = modId;
+            this.classes = classes;
+            this.findings = Collections.unmodifiableList(new ArrayList<>(findings));
+        }
+
+        public String getSha256() { return sha256; }
+        public String getFileName() { return fileName; }
+        public long getSize() { return size; }
+        public long getLastModified() { return lastModified; }
+        public String getModId() { return modId; }
+        public int getClasses() { return classes; }
+        public List<String> getFindings() { return findings; }
+    }
+
+    // === Lookups ===
+
+    /** Cached result for this content hash, or null if absent or produced by another scanner version. */
+    public synchronized Entry get(String sha256, int scannerVersion) {
+        Entry e = bySha.get(sha256);
+        return (e != null && e.scannerVersion == scannerVersion) ? e : null;
+    }
+
+    public synchronized void put(Entry e) {
+        bySha.put(e.sha256, e);
+        dirty = true;
+    }
+
+    /** Drop entries for jars that are no longer in mods/. */
+    public synchronized void retainOnly(Collection<String> sha256s) {
+        if (bySha.keySet().retainAll(new HashSet<>(sha256s))) dirty = true;
+    }
+
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(bySha.values());
+    }
+
+    public synchronized int size() {
+        return bySha.size();
+    }
+
+    // === Persistence ===
+
+    /** @return number of entries read (0 if there is no usable cache) */
+    public synchronized int load() {
+        bySha.clear();
+        dirty = false;
+        if (!file.exists()) return 0;
+        try (JsonCodec.Tokenizer t = new JsonCodec.Tokenizer(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            if (t.isEmpty()) return 0;
+            t.beginObject();
+            while (t.hasNext()) {
+                String name = t.nextName();
+                if ("jars".equals(name) && t.peekContainer()) {
+                    t.beginObject();
+                    while (t.hasNext()) {
+                        Entry e = readEntry(t.nextName(), t);
+                        bySha.put(e.sha256, e);
+                    }
+                    t.endObject();
+                } else {
+                    t.skipValue();
+                }
+            }
+            t.endObject();
+        } catch (IOException | RuntimeException e) {
+            // Corrupt cache: start cold, the next save replaces it
+            bySha.clear();
+            dirty = true;
+        }
+        return bySha.size();
+    }
+
+    private static Entry readEntry(String sha, JsonCodec.Tokenizer t) throws IOException {
+        String fileName = "", modId = null;
+        long size = -1, mtime = -1;
+        int version = -1, classes = 0;
+        List<String> findings = new ArrayList<>();
+
+        t.beginObject();
+        while (t.hasNext()) {
+            String name = t.nextName();
+            switch (name) {
+                case "file":     fileName = t.nextScalar(); break;
+                case "size":     size = Long.parseLong(t.nextScalar()); break;
+                case "mtime":    mtime = Long.parseLong(t.nextScalar()); break;
+                case "scanner":  version = Integer.parseInt(t.nextScalar()); break;
+                case "modId":    modId = t.nextScalar(); break;
+                case "classes":  classes = Integer.parseInt(t.nextScalar()); break;
+                case "findings":
+                    t.beginArray();
+                    while (t.hasNext()) findings.add(t.nextScalar());
+                    t.endArray();
+                    break;
+                default: t.skipValue();
+            }
+        }
+        t.endObject();
+        return new Entry(sha, fileName, size, mtime, version, modId, classes, findings);
+    }
+
+    /** Write the cache if anything changed since load/save. */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            JsonCodec.Emitter e = new JsonCodec.Emitter(w);
+            e.beginObject();
+            e.name("version").value(FORMAT_VERSION);
+            e.name("jars").beginObject();
+            for (Entry entry : bySha.values()) {
+                e.name(entry.sha256).beginObject();
+                e.name("file").value(entry.fileName);
+                e.name("size").value(entry.size);
+                e.name("mtime").value(entry.lastModified);
+                e.name("scanner").value(entry.scannerVersion);
+                e.name("modId").value(entry.modId);
+                e.name("classes").value(entry.classes);
+                e.name("findings").beginArray();
+                for (String f : entry.findings) e.element(f);
+                e.endArray();
+                e.endObject();
+            }
+            e.endObject();
+            e.endObject();
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        dirty = false;
+    }
+}
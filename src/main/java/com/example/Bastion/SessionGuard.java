@@ -26,7 +26,7 @@ public class SessionGuard {
                 GuiSessionPrompt.open(modName, "Token access via " + method)
         );
 
-        BastionCore.getInstance().sendWebhook(msg);
+        BastionCore.getInstance().sendWebhook(msg, BastionCore.Severity.CRITICAL);
     }
 
     /**
@@ -44,7 +44,7 @@ public class SessionGuard {
         );
 
         // Remote log
-        BastionCore.getInstance().sendWebhook(msg);
+        BastionCore.getInstance().sendWebhook(msg, BastionCore.Severity.CRITICAL);
     }
 
     // === Backward compatibility (fallback for callers that didn’t pass modName) ===
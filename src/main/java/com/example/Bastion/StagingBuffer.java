@@ -0,0 +1,65 @@
+package com.example.bastion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * StagingBuffer
+ * - Holds bytes written before a connection has been approved.
+ * - Grows by doubling from a small start, never past the configured cap; overflowing writes fail.
+ * - drainTo() hands the backing array straight to the target stream (no toByteArray copy).
+ * - Not thread-safe: callers hold their own lock.
+ */
+public final class StagingBuffer {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int INITIAL_SIZE = 512;
+
+    private final int cap;
+    private byte[] buf = EMPTY;
+    private int count;
+
+    public StagingBuffer(int cap) {
+        this.cap = Math.max(0, cap);
+    }
+
+    public void write(int b) throws IOException {
+        ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= 0) return;
+        ensure(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensure(int extra) throws IOException {
+        int needed = count + extra;
+        if (needed < 0 || needed > cap) {
+            throw new IOException("[Bastion] Staging buffer full (" + count + " + " + extra + " > " + cap + " bytes)");
+        }
+        if (needed <= buf.length) return;
+        int size = Math.max(buf.length, INITIAL_SIZE);
+        while (size < needed) size = (size > cap / 2) ? cap : size << 1;
+        buf = Arrays.copyOf(buf, Math.min(size, cap));
+    }
+
+    /** Write everything staged to out and empty the buffer (capacity is kept). */
+    public void drainTo(OutputStream out) throws IOException {
+        if (count == 0) return;
+        out.write(buf, 0, count);
+        count = 0;
+    }
+
+    /** Drop staged bytes and the backing array. */
+    public void release() {
+        buf = EMPTY;
+        count = 0;
+    }
+
+    public int size() { return count; }
+    public int getCap() { return cap; }
+}
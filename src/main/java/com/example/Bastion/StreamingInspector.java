@@ -0,0 +1,130 @@
+package com.example.bastion;
+
+/**
+ * StreamingInspector
+ * - Inspects an outbound body as it is written: constant memory, no copy of the payload,
+ *   no String decoding, no regex.
+ * - Keyword indicators run on one IndicatorMatcher cursor, so matches span write() boundaries.
+ * - JWTs ("eyJ", 10+ base64url chars, '.', 10+ more) are tracked with two counters and a flag.
+ * - Base64, base64url and hex runs of 40+ chars are decoded on the fly, up to a per-run cap, and
+ *   the decoded bytes are matched again (EncodedRunDetector).
+ * - The verdict is sticky and available as soon as the first indicator is seen, so callers can
+ *   decide before the rest of the body is sent.
+ * - Not thread-safe; one instance per stream.
+ */
+public final class StreamingInspector {
+
+    public enum Indicator { KEYWORD, JWT, ENCODED }
+
+    private static final int JWT_MIN_TAIL = 10;
+
+    // Shared keyword sets
+    public static final long PAYLOAD_KEYWORDS = IndicatorMatcher.WEBHOOK
+            | IndicatorMatcher.bit(IndicatorMatcher.SESSION) | IndicatorMatcher.bit(IndicatorMatcher.TOKEN)
+            | IndicatorMatcher.bit(IndicatorMatcher.UUID) | IndicatorMatcher.bit(IndicatorMatcher.ACCESSTOKEN)
+            | IndicatorMatcher.bit(IndicatorMatcher.SESSIONTOKEN) | IndicatorMatcher.bit(IndicatorMatcher.PASSWORD)
+            | IndicatorMatcher.bit(IndicatorMatcher.AUTH) | IndicatorMatcher.bit(IndicatorMatcher.CLIENTSECRET);
+    public static final long MONITOR_KEYWORDS = IndicatorMatcher.WEBHOOK
+            | IndicatorMatcher.bit(IndicatorMatcher.SESSION) | IndicatorMatcher.bit(IndicatorMatcher.TOKEN)
+            | IndicatorMatcher.bit(IndicatorMatcher.UUID);
+    // Raw TLS plaintext includes protocol headers, where session / token / auth are routine
+    public static final long TLS_KEYWORDS = IndicatorMatcher.WEBHOOK
+            | IndicatorMatcher.bit(IndicatorMatcher.ACCESSTOKEN) | IndicatorMatcher.bit(IndicatorMatcher.SESSIONTOKEN)
+            | IndicatorMatcher.bit(IndicatorMatcher.CLIENTSECRET) | IndicatorMatcher.bit(IndicatorMatcher.PASSWORD);
+
+    private final long keywords;
+    private final boolean detectJwt;
+
+    private final IndicatorMatcher.Cursor cursor = IndicatorMatcher.DEFAULT.cursor();
+    private Indicator verdict;
+    private long inspected;
+
+    // JWT: how much of "eyJ" has matched, then the length of the current segment after it
+    private int jwtPrefix;
+    private int jwtTail = -1;
+    private boolean jwtDotSeen;
+
+    // Base64 / base64url / hex runs, decoded and re-matched
+    private final EncodedRunDetector encoded;
+
+    public StreamingInspector(long keywords, boolean detectJwt) {
+        this.keywords = keywords;
+        this.detectJwt = detectJwt;
+        this.encoded = new EncodedRunDetector(keywords);
+    }
+
+    // === Feeding ===
+
+    /** Inspect the next chunk. Returns true once the body is known to be sensitive. */
+    public boolean feed(byte[] b, int off, int len) {
+        if (verdict != null) return true;
+        inspected += len;
+
+        if ((cursor.feed(b, off, len) & keywords) != 0) {
+            verdict = Indicator.KEYWORD;
+            return true;
+        }
+        if (detectJwt) {
+            for (int i = off, end = off + len; i < end && verdict == null; i++) stepJwt(b[i] & 0xFF);
+        }
+        if (verdict == null && encoded.feed(b, off, len)) verdict = Indicator.ENCODED;
+        return verdict != null;
+    }
+
+    public boolean feed(int b) {
+        if (verdict != null) return true;
+        inspected++;
+        if ((cursor.feed(b) & keywords) != 0) {
+            verdict = Indicator.KEYWORD;
+            return true;
+        }
+        step(b & 0xFF);
+        return verdict != null;
+    }
+
+    private void step(int c) {
+        if (detectJwt) stepJwt(c);
+        if (verdict == null && encoded.step(c)) verdict = Indicator.ENCODED;
+    }
+
+    // "eyJ" (base64url of '{"'), a header segment of 10+ chars, '.', then 10+ chars of payload
+    private void stepJwt(int c) {
+        if (jwtTail >= 0) {
+            if (isJwtChar(c)) {
+                if (++jwtTail >= JWT_MIN_TAIL && jwtDotSeen) verdict = Indicator.JWT;
+                return;
+            }
+            if (c == '.' && !jwtDotSeen && jwtTail >= JWT_MIN_TAIL) {
+                jwtDotSeen = true;
+                jwtTail = 0;
+                return;
+            }
+            jwtTail = -1;
+            jwtDotSeen = false;
+            jwtPrefix = 0;
+        }
+        if (jwtPrefix == 0) {
+            jwtPrefix = (c == 'e') ? 1 : 0;
+        } else if (jwtPrefix == 1) {
+            jwtPrefix = (c == 'y') ? 2 : (c == 'e') ? 1 : 0;
+        } else if (c == 'J') {
+            jwtPrefix = 0;
+            jwtTail = 0;
+        } else {
+            jwtPrefix = (c == 'e') ? 1 : 0;
+        }
+    }
+
+    private static boolean isJwtChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    // === Verdict ===
+
+    public boolean isSensitive() { return verdict != null; }
+    /** First indicator seen, or null. */
+    public Indicator getVerdict() { return verdict; }
+    public long getInspectedBytes() { return inspected; }
+    /** Bytes that went through the encoded-run decoders (bounded per run). */
+    public long getDecodedBytes() { return encoded.getDecodedChars(); }
+}
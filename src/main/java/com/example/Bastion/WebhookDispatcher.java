@@ -0,0 +1,295 @@
+package com.example.bastion;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URL;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * WebhookDispatcher
+ * - Bounded, non-blocking queue in front of the Discord webhook; callers never touch the network.
+ * - One daemon sender coalesces queued lines into messages under Discord's 2000-char limit.
+ * - 429 responses (and an exhausted X-RateLimit bucket) back off, then the same batch is retried.
+ * - When the queue is full LOW messages are dropped first. Counters track every outcome.
+ * - Connections use the JVM's built-in http/https handlers, so Bastion's own URL factory never sees them,
+ *   but still go through the proxy the default ProxySelector picks (java.net.useSystemProxies).
+ */
+public class WebhookDispatcher {
+
+    public static final int DISCORD_LIMIT = 2000;
+
+    private static final long LINGER_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final Supplier<String> endpoint;
+    private final BlockingQueue<Message> queue;
+    private static final Map<String, URLStreamHandler> RAW_HANDLERS = new ConcurrentHashMap<>();
+    private volatile Thread sender;
+
+    // === Counters ===
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public WebhookDispatcher(Supplier<String> endpoint, int capacity) {
+        this.endpoint = endpoint;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    private static final class Message {
+        final String text;
+        final BastionCore.Severity severity;
+
+        Message(String text, BastionCore.Severity severity) {
+            this.text = text;
+            this.severity = severity;
+        }
+    }
+
+    // === Producer side (any thread, never blocks) ===
+
+    /**
+     * Queue a message. Returns false if it was dropped (no webhook configured or queue full).
+     */
+    public boolean enqueue(String text, BastionCore.Severity severity) {
+        String url = endpoint.get();
+        if (url == null || url.trim().isEmpty()) return false;
+
+        ensureSender();
+        Message msg = new Message(text, severity);
+        if (queue.offer(msg)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+
+        // Full: LOW never displaces anything; higher severities evict the oldest LOW line
+        if (severity != BastionCore.Severity.LOW && evictOneLow() && queue.offer(msg)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private boolean evictOneLow() {
+        for (Iterator<Message> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().severity == BastionCore.Severity.LOW) {
+                it.remove();
+                dropped.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureSender() {
+        if (sender != null) return;
+        synchronized (this) {
+            if (sender != null) return;
+            Thread t = new Thread(this::runSender, "Bastion-Webhook");
+            t.setDaemon(true);
+            t.start();
+            sender = t;
+        }
+    }
+
+    // === Sender side (single daemon thread) ===
+
+    private void runSender() {
+        String carry = null;
+        while (true) {
+            try {
+                String first = (carry != null) ? carry : take();
+                carry = null;
+
+                StringBuilder batch = new StringBuilder(first);
+                int lines = 1;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MILLIS);
+                while (batch.length() < DISCORD_LIMIT) {
+                    long wait = deadline - System.nanoTime();
+                    Message next = (wait > 0) ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    String text = clip(next.text);
+                    if (batch.length() + 1 + text.length() > DISCORD_LIMIT) {
+                        carry = text;
+                        break;
+                    }
+                    batch.append('\n').append(text);
+                    lines++;
+                }
+
+                if (deliver(batch.toString())) {
+                    delivered.addAndGet(lines);
+                } else {
+                    failed.addAndGet(lines);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable t) {
+                System.out.println("[Bastion][Webhook][RAW][Error] " + t.getClass().getSimpleName() + ": " + t.getMessage());
+            }
+        }
+    }
+
+    private String take() throws InterruptedException {
+        return clip(queue.take().text);
+    }
+
+    private static String clip(String text) {
+        return text.length() <= DISCORD_LIMIT ? text : text.substring(0, DISCORD_LIMIT - 3) + "...";
+    }
+
+    /** POST one batch, retrying on 429. Returns true once Discord accepted it. */
+    private boolean deliver(String content) throws InterruptedException {
+        batches.incrementAndGet();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            String url = endpoint.get();
+            if (url == null || url.trim().isEmpty()) return false;
+
+            HttpURLConnection conn = null;
+            try {
+                conn = openRaw(url);
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setConnectTimeout(10_000);
+                conn.setReadTimeout(10_000);
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setRequestProperty("User-Agent", "Bastion-RawWebhook");
+
+                byte[] payload = ("{\"content\":\"" + escapeJson(content) + "\"}").getBytes(StandardCharsets.UTF_8);
+                conn.setFixedLengthStreamingMode(payload.length);
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(payload);
+                }
+
+                int code = conn.getResponseCode();
+                drain(conn, code);
+
+                if (code == 429) {
+                    rateLimited.incrementAndGet();
+                    long backoff = retryAfterMillis(conn, attempt);
+                    System.out.println("[Bastion][Webhook][RAW] Rate limited, retrying in " + backoff + " ms.");
+                    Thread.sleep(backoff);
+                    continue;
+                }
+
+                // Bucket exhausted: wait for the reset before the next batch
+                if ("0".equals(conn.getHeaderField("X-RateLimit-Remaining"))) {
+                    Thread.sleep(parseSeconds(conn.getHeaderField("X-RateLimit-Reset-After"), 1000));
+                }
+                if (code >= 200 && code < 300) return true;
+
+                System.out.println("[Bastion][Webhook][RAW] Discord responded: " + code);
+                return false;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                System.out.println("[Bastion][Webhook][RAW][Error] " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                return false;
+            } finally {
+                if (conn != null) conn.disconnect();
+            }
+        }
+        return false;
+    }
+
+    private static void drain(HttpURLConnection conn, int code) {
+        try (InputStream in = (code >= 400) ? conn.getErrorStream() : conn.getInputStream()) {
+            if (in == null) return;
+            byte[] buf = new byte[512];
+            while (in.read(buf) != -1) { /* drain */ }
+        } catch (Exception ignored) {}
+    }
+
+    private static long retryAfterMillis(HttpURLConnection conn, int attempt) {
+        long fallback = Math.min(MAX_BACKOFF_MILLIS, 1000L << (attempt - 1));
+        return Math.min(MAX_BACKOFF_MILLIS, parseSeconds(conn.getHeaderField("Retry-After"), fallback));
+    }
+
+    private static long parseSeconds(String value, long fallbackMillis) {
+        if (value == null) return fallbackMillis;
+        try {
+            return (long) Math.ceil(Double.parseDouble(value.trim()) * 1000.0);
+        } catch (NumberFormatException e) {
+            return fallbackMillis;
+        }
+    }
+
+    /**
+     * Open the webhook with the JVM's own protocol handler, bypassing any installed
+     * URLStreamHandlerFactory (BastionURLStreamHandler would otherwise prompt for our own traffic).
+     * The user's proxy settings still apply.
+     */
+    static HttpURLConnection openRaw(String url) throws Exception {
+        String protocol = url.substring(0, Math.max(0, url.indexOf(':'))).toLowerCase();
+        URLStreamHandler handler = RAW_HANDLERS.computeIfAbsent(protocol, p -> {
+            try {
+                return (URLStreamHandler) Class.forName("sun.net.www.protocol." + p + ".Handler").newInstance();
+            } catch (Exception e) {
+                return null;
+            }
+        });
+        URL u = (handler != null) ? new URL(null, url, handler) : new URL(url);
+        return (HttpURLConnection) u.openConnection(proxyFor(u));
+    }
+
+    // First choice of the default ProxySelector (BastionProxySelector passes Bastion's own webhook through)
+    private static Proxy proxyFor(URL u) {
+        try {
+            ProxySelector selector = ProxySelector.getDefault();
+            if (selector != null) {
+                List<Proxy> proxies = selector.select(u.toURI());
+                if (proxies != null && !proxies.isEmpty()) return proxies.get(0);
+            }
+        } catch (Exception ignored) {}
+        return Proxy.NO_PROXY;
+    }
+
+    static String escapeJson(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // === Counters ===
+
+    public long getEnqueued() { return enqueued.get(); }
+    public long getDelivered() { return delivered.get(); }
+    public long getBatches() { return batches.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getRateLimited() { return rateLimited.get(); }
+    public long getFailed() { return failed.get(); }
+    public int getQueued() { return queue.size(); }
+
+    public String stats() {
+        return "enqueued=" + getEnqueued() + " delivered=" + getDelivered() + " batches=" + getBatches()
+                + " dropped=" + getDropped() + " rateLimited=" + getRateLimited() + " failed=" + getFailed()
+                + " queued=" + getQueued();
+    }
+}
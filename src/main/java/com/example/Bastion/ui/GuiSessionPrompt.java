@@ -17,7 +17,6 @@ import java.util.*;
 
 public class GuiSessionPrompt extends GuiScreen {
 
-    private static final File LOG_FILE = new File("config", "bastion_prompts.log");
     private static final Queue<GuiSessionPrompt> pendingQueue = new ArrayDeque<>();
     private static final Object LOCK = new Object();
     private static GuiSessionPrompt activePrompt = null;
@@ -138,14 +137,8 @@ public class GuiSessionPrompt extends GuiScreen {
     }
 
     private void logDecision(String mod, BastionCore.DecisionState state, String details) {
-        try {
-            if (!LOG_FILE.getParentFile().exists()) LOG_FILE.getParentFile().mkdirs();
-            try (BufferedWriter w = new BufferedWriter(new FileWriter(LOG_FILE, true))) {
-                String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-                w.write("[" + ts + "] " + mod + " → " + state + " (" + details + ")");
-                w.newLine();
-            }
-        } catch (IOException ignored) {}
+        String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        BastionCore.getInstance().logPrompt("[" + ts + "] " + mod + " → " + state + " (" + details + ")");
     }
 
     @Override protected void keyTyped(char c, int key) {
@@ -0,0 +1,72 @@
+package com.example.bastion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * EncodedRunDetectorBenchmark
+ * - Plain-main benchmark: MB/s through EncodedRunDetector alone and through the full
+ *   StreamingInspector, on JSON text and on base64 runs, in 16 KiB writes.
+ * - Webhook-only keywords, so the inspector's sticky verdict cannot short-circuit a run.
+ * - Run: java -cp <classes> com.example.bastion.EncodedRunDetectorBenchmark [rounds]
+ */
+public class EncodedRunDetectorBenchmark {
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        Random r = new Random(11);
+        StringBuilder json = new StringBuilder();
+        while (json.length() < 1 << 20) {
+            json.append("{\"id\":").append(r.nextInt(100000)).append(",\"name\":\"item").append(r.nextInt()).append("\"},");
+        }
+        StringBuilder blobs = new StringBuilder();
+        byte[] blob = new byte[768];
+        while (blobs.length() < 1 << 20) {
+            r.nextBytes(blob);
+            blobs.append(Base64.getEncoder().encodeToString(blob)).append('\n');
+        }
+        measure("JSON text", json.toString().getBytes(StandardCharsets.US_ASCII), rounds);
+        measure("base64 runs", blobs.toString().getBytes(StandardCharsets.US_ASCII), rounds);
+    }
+
+    private static void measure(String what, byte[] data, int rounds) {
+        double detector = bestOf(rounds, data, () -> {
+            EncodedRunDetector d = new EncodedRunDetector(0);
+            return d::feed;
+        });
+        double inspector = bestOf(rounds, data, () -> {
+            StreamingInspector s = new StreamingInspector(IndicatorMatcher.WEBHOOK, true);
+            return s::feed;
+        });
+        System.out.printf("%s: EncodedRunDetector %.0f MB/s, StreamingInspector %.0f MB/s%n", what, detector, inspector);
+    }
+
+    private interface Sink {
+        boolean feed(byte[] b, int off, int len);
+    }
+
+    private interface SinkFactory {
+        Sink create();
+    }
+
+    // 32 MiB per run in 16 KiB writes; best of n runs (the first warms up the JIT)
+    private static double bestOf(int n, byte[] data, SinkFactory factory) {
+        double best = 0;
+        for (int run = 0; run < n; run++) {
+            Sink sink = factory.create();
+            long total = 0;
+            long start = System.nanoTime();
+            while (total < 32L << 20) {
+                for (int off = 0; off < data.length; off += 16384) {
+                    int len = Math.min(16384, data.length - off);
+                    sink.feed(data, off, len);
+                    total += len;
+                }
+            }
+            best = Math.max(best, total / 1e6 / ((System.nanoTime() - start) / 1e9));
+        }
+        return best;
+    }
+}
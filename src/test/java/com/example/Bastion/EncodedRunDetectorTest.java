@@ -0,0 +1,151 @@
+package com.example.bastion;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * EncodedRunDetectorTest
+ * - Fuzz: a webhook URL hidden as base64, base64url or hex inside random text, fed in random
+ *   chunk sizes through both feed(int) and feed(byte[], int, int), must always be found.
+ * - Clean payloads (including encoded random bytes) must not trip; decoding stops at the per-run cap.
+ * - Throughput is measured separately (EncodedRunDetectorBenchmark).
+ */
+public class EncodedRunDetectorTest {
+
+    private static final int ROUNDS = 3000;
+
+    private static final char[] NOISE = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 {}[]\":,._-=/+\n".toCharArray();
+
+    // === Fuzz ===
+
+    @Test
+    public void findsEncodedWebhookInRandomChunks() {
+        Random r = new Random(0x5EED);
+        for (int round = 0; round < ROUNDS; round++) {
+            int encoding = round % 3;
+            byte[] payload = payload(r, encode(webhook(r), encoding, r));
+            boolean single = r.nextBoolean();
+            assertTrue("round " + round + " (" + name(encoding) + ", " + (single ? "single-byte" : "chunked") + ")",
+                    detect(payload, r, single));
+        }
+    }
+
+    @Test
+    public void findsEncodedWebhookThroughStreamingInspector() {
+        Random r = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            int encoding = round % 3;
+            byte[] payload = payload(r, encode(webhook(r), encoding, r));
+            StreamingInspector inspector = new StreamingInspector(IndicatorMatcher.WEBHOOK, false);
+            feed(inspector, payload, r, r.nextBoolean());
+            assertEquals("round " + round + " (" + name(encoding) + ")", StreamingInspector.Indicator.ENCODED, inspector.getVerdict());
+        }
+    }
+
+    @Test
+    public void ignoresCleanPayloads() {
+        Random r = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            byte[] blob = new byte[64 + r.nextInt(512)];
+            r.nextBytes(blob);
+            byte[] payload = payload(r, encode(blob, round % 3, r));
+            assertFalse("round " + round, detect(payload, r, r.nextBoolean()));
+        }
+    }
+
+    @Test
+    public void stopsDecodingAtRunCap() {
+        Random r = new Random(3);
+        byte[] filler = new byte[EncodedRunDetector.MAX_DECODED_RUN];   // > MAX_DECODED_RUN chars once encoded
+        r.nextBytes(filler);
+        String head = Base64.getEncoder().withoutPadding().encodeToString(filler);
+        // Trim so the run continues straight into the webhook on a quantum boundary
+        head = head.substring(0, head.length() - head.length() % 4);
+        String hook = Base64.getEncoder().withoutPadding().encodeToString(webhook(r));
+
+        EncodedRunDetector capped = new EncodedRunDetector(0);
+        byte[] joined = (head + hook).getBytes(StandardCharsets.US_ASCII);
+        assertFalse(capped.feed(joined, 0, joined.length));
+        assertTrue(capped.getDecodedChars() <= EncodedRunDetector.MAX_DECODED_RUN + 1);
+
+        EncodedRunDetector separate = new EncodedRunDetector(0);
+        byte[] split = (head + " " + hook).getBytes(StandardCharsets.US_ASCII);
+        assertTrue(separate.feed(split, 0, split.length));
+    }
+
+    // === Helpers ===
+
+    private static boolean detect(byte[] payload, Random r, boolean single) {
+        EncodedRunDetector d = new EncodedRunDetector(0);   // webhooks always count
+        boolean hit = false;
+        if (single) {
+            for (byte b : payload) hit |= d.step(b);
+            return hit;
+        }
+        for (int off = 0; off < payload.length; ) {
+            int len = Math.min(payload.length - off, 1 + r.nextInt(r.nextBoolean() ? 8 : 600));
+            hit |= d.feed(payload, off, len);
+            off += len;
+        }
+        return hit;
+    }
+
+    private static void feed(StreamingInspector inspector, byte[] payload, Random r, boolean single) {
+        if (single) {
+            for (byte b : payload) inspector.feed(b);
+            return;
+        }
+        for (int off = 0; off < payload.length; ) {
+            int len = Math.min(payload.length - off, 1 + r.nextInt(600));
+            inspector.feed(payload, off, len);
+            off += len;
+        }
+    }
+
+    private static byte[] webhook(Random r) {
+        StringBuilder sb = new StringBuilder(r.nextBoolean() ? "https://discord.com/api/webhooks/" : "https://discordapp.com/api/webhooks/");
+        for (int i = 0; i < 18; i++) sb.append((char) ('0' + r.nextInt(10)));
+        sb.append('/');
+        for (int i = 0; i < 68; i++) sb.append(NOISE[r.nextInt(62)]);
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String encode(byte[] raw, int encoding, Random r) {
+        switch (encoding) {
+            case 0:  return Base64.getEncoder().encodeToString(raw);
+            case 1:  return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+            default: {
+                StringBuilder sb = new StringBuilder();
+                String digits = r.nextBoolean() ? "0123456789abcdef" : "0123456789ABCDEF";
+                for (byte b : raw) sb.append(digits.charAt((b >> 4) & 0xF)).append(digits.charAt(b & 0xF));
+                return sb.toString();
+            }
+        }
+    }
+
+    private static String name(int encoding) {
+        return encoding == 0 ? "base64" : encoding == 1 ? "base64url" : "hex";
+    }
+
+    // Random text around the encoded run; it may touch the run directly and shift its alignment
+    private static byte[] payload(Random r, String encoded) {
+        StringBuilder sb = new StringBuilder();
+        noise(sb, r, r.nextInt(2000));
+        switch (r.nextInt(3)) {
+            case 0:  sb.append("\"data\":\"").append(encoded).append('"'); break;
+            case 1:  sb.append("payload=").append(encoded).append('&'); break;
+            default: sb.append(encoded); break;
+        }
+        noise(sb, r, r.nextInt(2000));
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void noise(StringBuilder sb, Random r, int n) {
+        for (int i = 0; i < n; i++) sb.append(NOISE[r.nextInt(NOISE.length)]);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bastion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * InspectionPipelineBenchmark
+ * - Plain-main benchmark of the one hot path every interceptor now shares: Flow.output() writes with
+ *   a latched policy (the HTTP preset's stages, without the prompt), against a raw stream.
+ * - Policy only: per-write overhead once latched (a volatile read), single-byte and 16 KiB writes.
+ * - Policy + scan: MB/s through the full StreamingInspector.
+ * - Boots BastionCore (config, journal and log files in the working directory), so it runs in its
+ *   own JVM rather than the unit suite; it prints its numbers for comparison across changes.
+ * - Run: java -cp <classes> com.example.bastion.InspectionPipelineBenchmark [rounds]
+ */
+public class InspectionPipelineBenchmark {
+
+    private static final String MOD = "bench-mod";
+
+    private static final InspectionPipeline POLICY = new InspectionPipeline.Builder("Bench-Policy")
+            .policy(InspectionPipeline.LATCHED)
+            .build();
+    private static final InspectionPipeline POLICY_SCAN = new InspectionPipeline.Builder("Bench-Scan")
+            .policy(InspectionPipeline.LATCHED).scan(IndicatorMatcher.WEBHOOK, true)
+            .build();
+
+    private static URL url;
+    private static byte[] chunk;
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        url = new URL("https://example.com/upload");
+        BastionCore.getInstance().recordDecision(MOD, null, null, BastionCore.DecisionState.APPROVED, false);
+
+        StringBuilder sb = new StringBuilder();
+        Random r = new Random(5);
+        while (sb.length() < 16384) sb.append("{\"id\":").append(r.nextInt(100000)).append(",\"name\":\"item").append(r.nextInt()).append("\"},");
+        chunk = sb.substring(0, 16384).getBytes(StandardCharsets.US_ASCII);
+
+        latchedPolicy(rounds);
+        policyAndScan(rounds);
+        System.exit(0);   // BastionCore's background threads
+    }
+
+    private static void latchedPolicy(int rounds) throws IOException {
+        OutputStream out = POLICY.open(MOD, url).output(new NullOutputStream());
+        out.write(0);   // first write latches the approval
+
+        int n = 2_000_000;
+        long raw = bestOf(rounds, () -> time(new NullOutputStream(), n));
+        long latched = bestOf(rounds, () -> time(out, n));
+        System.out.printf("single-byte writes: raw %d ns, latched %d ns per write (+%d ns)%n",
+                raw / n, latched / n, Math.max(0, latched - raw) / n);
+
+        int m = 20_000;
+        long rawChunks = bestOf(rounds, () -> timeChunks(new NullOutputStream(), m));
+        long latchedChunks = bestOf(rounds, () -> timeChunks(out, m));
+        System.out.printf("16 KiB writes: raw %d ns, latched %d ns per write (+%d ns)%n",
+                rawChunks / m, latchedChunks / m, Math.max(0, latchedChunks - rawChunks) / m);
+        System.out.println(POLICY.stats());
+    }
+
+    private static void policyAndScan(int rounds) throws IOException {
+        int m = 4096;   // 64 MiB per run
+        long best = bestOf(rounds, () -> timeChunks(POLICY_SCAN.open(MOD, url).output(new NullOutputStream()), m));
+        System.out.printf("policy + scan: %.0f MB/s%n", (double) m * chunk.length / 1e6 / (best / 1e9));
+        System.out.println(POLICY_SCAN.stats());
+    }
+
+    // === Helpers ===
+
+    private interface Run {
+        long nanos() throws IOException;
+    }
+
+    private static long bestOf(int n, Run run) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) best = Math.min(best, run.nanos());
+        return best;
+    }
+
+    private static long time(OutputStream out, int writes) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) out.write(i);
+        return System.nanoTime() - start;
+    }
+
+    private static long timeChunks(OutputStream out, int writes) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) out.write(chunk, 0, chunk.length);
+        return System.nanoTime() - start;
+    }
+
+    // Discards bytes but touches them, so the raw baseline is not optimized away
+    private static final class NullOutputStream extends OutputStream {
+        int sink;
+
+        @Override public void write(int b) { sink += b; }
+        @Override public void write(byte[] b, int off, int len) { sink += b[off] + len; }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.bastion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * JsonCodecBenchmark
+ * - Plain-main benchmark: loads a generated 100k-entry bastion_state.json with JsonCodec (v1 flat
+ *   and v2 sectioned files) and with the parser it replaced (parseJson below, kept verbatim).
+ * - Reports time per load, heap growth during the load, and how many entries each one got right;
+ *   about 1% of the generated mod names contain a comma or an escaped quote.
+ * - Run: java -cp <classes> com.example.bastion.JsonCodecBenchmark [entries] [rounds]
+ */
+public class JsonCodecBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> expected = generate(entries);
+        File v1 = File.createTempFile("bastion_state_v1", ".json");
+        File v2 = File.createTempFile("bastion_state_v2", ".json");
+        v1.deleteOnExit();
+        v2.deleteOnExit();
+        writeV1(expected, v1);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(v2), StandardCharsets.UTF_8)) {
+            JsonCodec.writeState(expected, w);
+        }
+        System.out.printf("%d entries: v1 %d KiB, v2 %d KiB%n", entries, v1.length() / 1024, v2.length() / 1024);
+
+        for (int round = 0; round < rounds; round++) {
+            boolean report = round == rounds - 1;
+            run("legacy parseJson (v1)", report, expected, () -> legacyLoad(v1));
+            run("JsonCodec (v1)", report, expected, () -> codecLoad(v1));
+            run("JsonCodec (v2)", report, expected, () -> codecLoad(v2));
+        }
+    }
+
+    private interface Load {
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> run() throws IOException;
+    }
+
+    private static void run(String name, boolean report, Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> expected,
+                            Load load) throws IOException {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long start = System.nanoTime();
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> loaded = load.run();
+        long nanos = System.nanoTime() - start;
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        if (!report) return;
+
+        int correct = 0;
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) {
+            for (Map.Entry<String, BastionCore.DecisionState> e : expected.get(kind).entrySet()) {
+                if (e.getValue() == loaded.get(kind).get(e.getKey())) correct++;
+            }
+        }
+        System.out.printf("%-24s %7.1f ms  heap +%6d KiB  %d/%d entries correct%n", name, nanos / 1e6,
+                Math.max(0, heapAfter - heapBefore) / 1024, correct, size(expected));
+    }
+
+    // === Current loader (BastionCore.loadState's read step) ===
+
+    private static Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> codecLoad(File file) throws IOException {
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state = emptyState();
+        JsonCodec.readState(file, state, JsonCodecBenchmark::legacyKind);
+        return state;
+    }
+
+    // === Legacy loader (BastionCore.loadState / parseJson before JsonCodec) ===
+
+    private static Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> legacyLoad(File file) throws IOException {
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state = emptyState();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) sb.append(line);
+            String json = sb.toString().trim();
+            if (!json.isEmpty()) {
+                Map<String, String> map = parseJson(json);
+                for (Map.Entry<String, String> e : map.entrySet()) {
+                    BastionCore.DecisionState st;
+                    try {
+                        st = BastionCore.DecisionState.valueOf(e.getValue());
+                    } catch (IllegalArgumentException ex) {
+                        continue;   // the legacy loader aborted the whole load here
+                    }
+                    String normalized = e.getKey().toLowerCase(Locale.ROOT).replaceAll(":\\d+$", "");
+                    state.get(legacyKind(normalized)).put(normalized, st);
+                }
+            }
+        }
+        return state;
+    }
+
+    private static Map<String, String> parseJson(String json) {
+        Map<String, String> map = new LinkedHashMap<>();
+        json = json.trim();
+        if (json.startsWith("{") && json.endsWith("}")) {
+            json = json.substring(1, json.length() - 1);
+        }
+        for (String part : json.split(",")) {
+            String[] kv = part.split(":", 2); // split only on first colon
+            if (kv.length == 2) {
+                String key = kv[0].trim().replace("\"", "");
+                String value = kv[1].trim().replace("\"", "");
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private static DecisionTable.Kind legacyKind(String key) {
+        return !key.contains("@") ? DecisionTable.Kind.MOD
+                : key.contains("http") ? DecisionTable.Kind.URL : DecisionTable.Kind.HOST;
+    }
+
+    // === Data ===
+
+    private static Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> generate(int entries) {
+        Random r = new Random(12);
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state = emptyState();
+        BastionCore.DecisionState[] states = { BastionCore.DecisionState.APPROVED, BastionCore.DecisionState.DENIED };
+        String[] hosts = { "discord.com", "api.mojang.com", "pastebin.com", "cdn.example.net", "hooks.slack.com" };
+        while (size(state) < entries) {
+            String mod = "mod" + r.nextInt(entries);
+            if (r.nextInt(100) == 0) mod += r.nextBoolean() ? ", extras" : " \"beta\"";
+            String modKey = DecisionTable.modKey(mod, Long.toHexString(r.nextLong()));
+            BastionCore.DecisionState st = states[r.nextInt(2)];
+            // v1 files carry no kind and URL keys look like host keys there, so only mods and hosts
+            if (r.nextBoolean()) {
+                state.get(DecisionTable.Kind.MOD).put(modKey, st);
+            } else {
+                state.get(DecisionTable.Kind.HOST).put(DecisionTable.hostKey(modKey, hosts[r.nextInt(hosts.length)]), st);
+            }
+        }
+        return state;
+    }
+
+    // v1: one flat object, written with the codec's escaping
+    private static void writeV1(Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state, File file) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            JsonCodec.Emitter e = new JsonCodec.Emitter(w);
+            e.beginObject();
+            for (Map<String, BastionCore.DecisionState> m : state.values()) {
+                for (Map.Entry<String, BastionCore.DecisionState> entry : m.entrySet()) e.name(entry.getKey()).value(entry.getValue().name());
+            }
+            e.endObject();
+        }
+    }
+
+    private static Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> emptyState() {
+        Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state = new EnumMap<>(DecisionTable.Kind.class);
+        for (DecisionTable.Kind kind : DecisionTable.Kind.values()) state.put(kind, new LinkedHashMap<>());
+        return state;
+    }
+
+    private static int size(Map<DecisionTable.Kind, Map<String, BastionCore.DecisionState>> state) {
+        int n = 0;
+        for (Map<String, BastionCore.DecisionState> m : state.values()) n += m.size();
+        return n;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.bastion;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * WebhookDispatcherTest
+ * - Runs the dispatcher against a local HTTP stand-in for the Discord endpoint (JDK HttpServer).
+ * - Batching under DISCORD_LIMIT, 429 back-off, LOW drops on a full queue, and delivery through
+ *   the default ProxySelector's proxy.
+ */
+public class WebhookDispatcherTest {
+
+    private HttpServer server;
+    private String endpoint;
+    private final BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> requestUris = new LinkedBlockingQueue<>();
+    private volatile Handler handler = exchange -> respond(exchange, 204);
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    @Before
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requestUris.add(exchange.getRequestURI().toString());
+            bodies.add(read(exchange.getRequestBody()));
+            handler.handle(exchange);
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/webhooks/1/test";
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void batchesUnderDiscordLimit() throws Exception {
+        WebhookDispatcher d = new WebhookDispatcher(() -> endpoint, 256);
+        String line = repeat('x', 150);
+        for (int i = 0; i < 50; i++) assertTrue(d.enqueue(line + i, BastionCore.Severity.MEDIUM));
+
+        await(() -> d.getDelivered() == 50);
+        assertTrue("batched: " + d.stats(), d.getBatches() < 50);
+        int lines = 0;
+        for (String body; (body = bodies.poll()) != null; ) {
+            String content = body.substring("{\"content\":\"".length(), body.length() - 2);
+            assertTrue("content of " + content.length() + " chars", content.length() <= WebhookDispatcher.DISCORD_LIMIT);
+            lines += content.split("\\\\n").length;
+        }
+        assertEquals(50, lines);
+        assertEquals(0, d.getFailed());
+    }
+
+    @Test
+    public void backsOffOn429() throws Exception {
+        CountDownLatch first = new CountDownLatch(1);
+        handler = exchange -> {
+            if (first.getCount() > 0) {
+                first.countDown();
+                exchange.getResponseHeaders().add("Retry-After", "0.3");
+                respond(exchange, 429);
+            } else {
+                respond(exchange, 204);
+            }
+        };
+        WebhookDispatcher d = new WebhookDispatcher(() -> endpoint, 16);
+        long start = System.nanoTime();
+        assertTrue(d.enqueue("rate limited once", BastionCore.Severity.CRITICAL));
+
+        await(() -> d.getDelivered() == 1);
+        assertEquals(1, d.getRateLimited());
+        assertEquals(2, bodies.size());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 300);
+    }
+
+    @Test
+    public void dropsLowMessagesWhenFull() throws Exception {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            busy.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 204);
+        };
+        WebhookDispatcher d = new WebhookDispatcher(() -> endpoint, 2);
+        assertTrue(d.enqueue("in flight", BastionCore.Severity.MEDIUM));
+        assertTrue(busy.await(10, TimeUnit.SECONDS));   // sender is now blocked on the stand-in
+
+        assertTrue(d.enqueue("low 1", BastionCore.Severity.LOW));
+        assertTrue(d.enqueue("low 2", BastionCore.Severity.LOW));
+        assertFalse(d.enqueue("low 3", BastionCore.Severity.LOW));             // LOW never displaces
+        assertTrue(d.enqueue("critical", BastionCore.Severity.CRITICAL));     // evicts the oldest LOW
+        assertEquals(2, d.getDropped());
+
+        release.countDown();
+        await(() -> d.getDelivered() == 3);
+        StringBuilder all = new StringBuilder();
+        for (String body; (body = bodies.poll()) != null; ) all.append(body);
+        assertTrue(all.toString(), all.indexOf("critical") >= 0 && all.indexOf("low 2") >= 0);
+        assertEquals(-1, all.indexOf("low 1"));
+        assertEquals(-1, all.indexOf("low 3"));
+    }
+
+    @Test
+    public void honoursDefaultProxySelector() throws Exception {
+        ProxySelector previous = ProxySelector.getDefault();
+        Proxy standIn = new Proxy(Proxy.Type.HTTP, server.getAddress());
+        ProxySelector.setDefault(new ProxySelector() {
+            @Override public List<Proxy> select(URI uri) { return Collections.singletonList(standIn); }
+            @Override public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {}
+        });
+        try {
+            // Not resolvable: only reachable through the proxy
+            WebhookDispatcher d = new WebhookDispatcher(() -> "http://webhook.invalid/api/webhooks/1/test", 16);
+            assertTrue(d.enqueue("via proxy", BastionCore.Severity.CRITICAL));
+
+            await(() -> d.getDelivered() == 1);
+            assertEquals("http://webhook.invalid/api/webhooks/1/test", requestUris.poll());
+        } finally {
+            ProxySelector.setDefault(previous);
+        }
+    }
+
+    // === Helpers ===
+
+    private static void respond(HttpExchange exchange, int code) throws IOException {
+        exchange.sendResponseHeaders(code, -1);
+        exchange.close();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        for (int n; (n = in.read(buf)) != -1; ) out.write(buf, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}